@@ -0,0 +1,129 @@
+package priorityqueues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares adding a batch of items to an {@link ArrayHeapMinPQ} one at a time with
+ * {@link ArrayHeapMinPQ#add} against adding them all at once with
+ * {@link ArrayHeapMinPQ#addAll(List, double[])}, {@link ArrayHeapMinPQ#addAll(Map)} and
+ * {@link ArrayHeapMinPQ#meld}.
+ *
+ * <pre>
+ * java priorityqueues.ArrayHeapMinPQBenchmark [n] [iterations]
+ * </pre>
+ *
+ * Defaults to n = 1000000 and 10 timed iterations, after as many warm-up iterations.
+ * The batch is added to an empty heap, to a heap of n / 2 items, which is where the batch methods
+ * start rebuilding the heap instead of adding the items one at a time, to a heap of n items, which
+ * is just below that, and in a batch of n / 16 items to a heap of n items. Only adding the batch is timed: building the heap
+ * it goes into, the map for addAll(Map) and the heap for meld are not.
+ */
+public class ArrayHeapMinPQBenchmark {
+    private enum Method {
+        ADD, ADD_ALL_LIST, ADD_ALL_MAP, MELD
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Random random = new Random(373);
+        List<Integer> items = new ArrayList<>(2 * n);
+        double[] priorities = new double[2 * n];
+        for (int i = 0; i < 2 * n; ++i) {
+            items.add(i);
+            priorities[i] = random.nextDouble();
+        }
+
+        int[][] cases = {{0, n}, {n / 2, n}, {n, n}, {n, n / 16}};
+        for (int[] c : cases) {
+            int existing = c[0];
+            int batch = c[1];
+            System.out.printf(Locale.ROOT, "%d items into a heap of %d:%n", batch, existing);
+            // Warm up, then time.
+            run(items, priorities, existing, batch, iterations);
+            double[] millis = run(items, priorities, existing, batch, iterations);
+            for (Method method : Method.values()) {
+                System.out.printf(Locale.ROOT, "  %-14s %9.2f ms  %5.2fx add%n",
+                    name(method), millis[method.ordinal()], millis[method.ordinal()] / millis[Method.ADD.ordinal()]);
+            }
+        }
+    }
+
+    private static String name(Method method) {
+        switch (method) {
+            case ADD:
+                return "n x add";
+            case ADD_ALL_LIST:
+                return "addAll(List)";
+            case ADD_ALL_MAP:
+                return "addAll(Map)";
+            default:
+                return "meld";
+        }
+    }
+
+    // Returns the mean time each method takes to add the batch, in milliseconds.
+    private static double[] run(List<Integer> items, double[] priorities, int existing, int batch, int iterations) {
+        List<Integer> batchItems = items.subList(existing, existing + batch);
+        double[] batchPriorities = new double[batch];
+        System.arraycopy(priorities, existing, batchPriorities, 0, batch);
+
+        long[] nanos = new long[Method.values().length];
+        long checksum = 0;
+        for (int i = 0; i < iterations; ++i) {
+            for (Method method : Method.values()) {
+                ArrayHeapMinPQ<Integer> heap = new ArrayHeapMinPQ<>();
+                heap.addAll(items.subList(0, existing), Arrays.copyOf(priorities, existing));
+                Map<Integer, Double> map = null;
+                ArrayHeapMinPQ<Integer> other = null;
+                if (method == Method.ADD_ALL_MAP) {
+                    map = new HashMap<>((int) (batch / 0.75f) + 1);
+                    for (int j = 0; j < batch; ++j) {
+                        map.put(batchItems.get(j), batchPriorities[j]);
+                    }
+                } else if (method == Method.MELD) {
+                    other = new ArrayHeapMinPQ<>();
+                    other.addAll(batchItems, batchPriorities);
+                }
+
+                // Don't charge the garbage from building the inputs to the method being timed.
+                System.gc();
+                long start = System.nanoTime();
+                switch (method) {
+                    case ADD:
+                        for (int j = 0; j < batch; ++j) {
+                            heap.add(batchItems.get(j), batchPriorities[j]);
+                        }
+                        break;
+                    case ADD_ALL_LIST:
+                        heap.addAll(batchItems, batchPriorities);
+                        break;
+                    case ADD_ALL_MAP:
+                        heap.addAll(map);
+                        break;
+                    default:
+                        heap.meld(other);
+                        break;
+                }
+                nanos[method.ordinal()] += System.nanoTime() - start;
+                checksum += heap.peekMin();
+            }
+        }
+        if (checksum == Long.MIN_VALUE) {
+            // Keeps the JIT from discarding the heaps.
+            System.out.println(checksum);
+        }
+        double[] millis = new double[nanos.length];
+        for (int m = 0; m < nanos.length; ++m) {
+            millis[m] = nanos[m] / 1e6 / iterations;
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,288 @@
+package graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Immutable directed graph over the vertices 0 to vertexCount - 1, stored in compressed sparse
+ * row (CSR) form.
+ *
+ * The outgoing edges of vertex v are the edges offsets[v] to offsets[v + 1] - 1, and edge e goes
+ * to targets[e] with weight weights[e]. Three flat arrays take a fraction of the memory of one
+ * {@link Edge} object per edge, and are loaded from a file with a few bulk copies.
+ *
+ * The graph works with any {@link graphs.shortestpaths.ShortestPathFinder} through
+ * {@link #outgoingEdgesFrom(Integer)}, which creates edge objects on demand. Code that wants to
+ * avoid those objects can walk the arrays through {@link #firstEdge(int)}, {@link #target(int)}
+ * and {@link #weight(int)} instead, as {@link graphs.shortestpaths.CsrDijkstraShortestPathFinder} does.
+ *
+ * The file format is a 16 byte header of little-endian ints (the magic number, the vertex count,
+ * the edge count and a reserved 0), followed by the offsets, the targets and the weights, all
+ * little-endian.
+ */
+public class CsrGraph implements Graph<Integer, Edge<Integer>> {
+    private static final int MAGIC = 0x43535231; // "CSR1"
+    private static final int HEADER_BYTES = 16;
+    // The largest mapping made at once while loading, well under the 2 GB limit of a single mapping.
+    private static final long MAX_MAPPING_BYTES = 1 << 30;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, double[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public static Builder builder(int vertexCount) {
+        return new Builder(vertexCount);
+    }
+
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the index of the first outgoing edge of v. The outgoing edges of v are the
+     * indices from firstEdge(v) up to but not including firstEdge(v + 1).
+     */
+    public int firstEdge(int v) {
+        return offsets[v];
+    }
+
+    public int outDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns a view of the outgoing edges of the vertex, creating each edge when it's read.
+     * Vertices outside the graph have no edges.
+     */
+    @Override
+    public Collection<Edge<Integer>> outgoingEdgesFrom(Integer vertex) {
+        int v = vertex;
+        if (v < 0 || v >= vertexCount()) {
+            return Collections.emptyList();
+        }
+        int first = offsets[v];
+        int size = offsets[v + 1] - first;
+        return new AbstractList<Edge<Integer>>() {
+            @Override
+            public Edge<Integer> get(int i) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+                }
+                return new Edge<>(vertex, targets[first + i], weights[first + i]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Loads a graph written by {@link #write(Path)}. The file is memory-mapped and copied into the
+     * graph's arrays in bulk, so nothing is parsed edge by edge.
+     */
+    public static CsrGraph load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a CSR graph file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a CSR graph file: " + file);
+            }
+            int vertexCount = header.getInt();
+            int edgeCount = header.getInt();
+            if (vertexCount < 0 || edgeCount < 0 || vertexCount == Integer.MAX_VALUE) {
+                throw new IOException("Corrupt CSR graph header: " + file);
+            }
+            long offsetsAt = HEADER_BYTES;
+            long targetsAt = offsetsAt + (vertexCount + 1L) * Integer.BYTES;
+            long weightsAt = targetsAt + (long) edgeCount * Integer.BYTES;
+            if (channel.size() < weightsAt + (long) edgeCount * Double.BYTES) {
+                throw new IOException("Truncated CSR graph file: " + file);
+            }
+
+            int[] offsets = new int[vertexCount + 1];
+            int[] targets = new int[edgeCount];
+            double[] weights = new double[edgeCount];
+            readInts(channel, offsetsAt, offsets);
+            readInts(channel, targetsAt, targets);
+            readDoubles(channel, weightsAt, weights);
+            validate(offsets, targets, file);
+            return new CsrGraph(offsets, targets, weights);
+        }
+    }
+
+    // Checks that the arrays describe a graph, so a corrupt file fails here instead of during a search.
+    private static void validate(int[] offsets, int[] targets, Path file) throws IOException {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IOException("Corrupt CSR graph offsets: " + file);
+        }
+        for (int v = 1; v < offsets.length; ++v) {
+            if (offsets[v] < offsets[v - 1]) {
+                throw new IOException("Corrupt CSR graph offsets: " + file);
+            }
+        }
+        int vertexCount = offsets.length - 1;
+        for (int target : targets) {
+            if (target < 0 || target >= vertexCount) {
+                throw new IOException("Corrupt CSR graph targets: " + file);
+            }
+        }
+    }
+
+    private static void readInts(FileChannel channel, long position, int[] dest) throws IOException {
+        int done = 0;
+        while (done < dest.length) {
+            int count = (int) Math.min(dest.length - done, MAX_MAPPING_BYTES / Integer.BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                position + (long) done * Integer.BYTES, (long) count * Integer.BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(dest, done, count);
+            done += count;
+        }
+    }
+
+    private static void readDoubles(FileChannel channel, long position, double[] dest) throws IOException {
+        int done = 0;
+        while (done < dest.length) {
+            int count = (int) Math.min(dest.length - done, MAX_MAPPING_BYTES / Double.BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                position + (long) done * Double.BYTES, (long) count * Double.BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(dest, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes the graph in the format read by {@link #load(Path)}.
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(vertexCount()).putInt(edgeCount()).putInt(0).flip();
+            writeFully(channel, header);
+
+            // Write through a fixed-size buffer so huge graphs don't need a second copy in memory.
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int[] ints : new int[][]{offsets, targets}) {
+                for (int value : ints) {
+                    if (buffer.remaining() < Integer.BYTES) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    buffer.putInt(value);
+                }
+            }
+            for (double value : weights) {
+                if (buffer.remaining() < Double.BYTES) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putDouble(value);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Collects edges in any order and sorts them into a {@link CsrGraph}. The outgoing edges of
+     * each vertex keep the order they were added in.
+     */
+    public static class Builder {
+        private final int vertexCount;
+        private int[] sources;
+        private int[] targets;
+        private double[] weights;
+        private int edgeCount;
+
+        private Builder(int vertexCount) {
+            if (vertexCount < 0 || vertexCount == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid vertex count: " + vertexCount);
+            }
+            this.vertexCount = vertexCount;
+            this.sources = new int[16];
+            this.targets = new int[16];
+            this.weights = new double[16];
+        }
+
+        public Builder addEdge(int from, int to, double weight) {
+            if (from < 0 || from >= vertexCount || to < 0 || to >= vertexCount) {
+                throw new IllegalArgumentException("Edge " + from + " -> " + to + " is outside the graph");
+            }
+            if (edgeCount == sources.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * edgeCount);
+                if (capacity == edgeCount) {
+                    throw new IllegalStateException("Too many edges");
+                }
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            sources[edgeCount] = from;
+            targets[edgeCount] = to;
+            weights[edgeCount] = weight;
+            ++edgeCount;
+            return this;
+        }
+
+        public CsrGraph build() {
+            // Counting sort by source: count the out-degrees, take their prefix sums as the
+            // offsets, then drop every edge into the next free slot of its source.
+            int[] offsets = new int[vertexCount + 1];
+            for (int e = 0; e < edgeCount; ++e) {
+                ++offsets[sources[e] + 1];
+            }
+            for (int v = 0; v < vertexCount; ++v) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            int[] sortedTargets = new int[edgeCount];
+            double[] sortedWeights = new double[edgeCount];
+            for (int e = 0; e < edgeCount; ++e) {
+                int slot = next[sources[e]]++;
+                sortedTargets[slot] = targets[e];
+                sortedWeights[slot] = weights[e];
+            }
+            return new CsrGraph(offsets, sortedTargets, sortedWeights);
+        }
+    }
+}
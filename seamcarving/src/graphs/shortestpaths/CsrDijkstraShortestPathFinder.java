@@ -0,0 +1,158 @@
+package graphs.shortestpaths;
+
+import graphs.CsrGraph;
+import graphs.Edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes shortest paths on a {@link CsrGraph} using Dijkstra's algorithm on primitive arrays.
+ *
+ * Distances, backpointers and the priority queue are all int and double arrays indexed by vertex,
+ * and edges are read straight from the graph's arrays, so no edge, boxed integer or map entry is
+ * created until the final path is built. Gives the same distances as
+ * {@link DijkstraShortestPathFinder} on the same graph, though it may pick a different path when
+ * several are equally short. Edge weights must be non-negative.
+ *
+ * @see CsrGraph
+ */
+public class CsrDijkstraShortestPathFinder implements ShortestPathFinder<CsrGraph, Integer, Edge<Integer>> {
+    private static final int NONE = -1;
+
+    @Override
+    public ShortestPath<Integer, Edge<Integer>> findShortestPath(CsrGraph graph, Integer start, Integer end) {
+        int n = graph.vertexCount();
+        int s = start;
+        int t = end;
+        if (s == t) {
+            return new ShortestPath.SingleVertex<>(start);
+        }
+        if (s < 0 || s >= n || t < 0 || t >= n) {
+            return new ShortestPath.Failure<>();
+        }
+
+        double[] distTo = new double[n];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        // edgeTo[v] is the index of the edge the shortest known path to v arrives by.
+        int[] edgeTo = new int[n];
+        int[] edgeFrom = new int[n];
+        Arrays.fill(edgeTo, NONE);
+        IndexedHeap heap = new IndexedHeap(n, distTo);
+
+        distTo[s] = 0;
+        heap.push(s);
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            if (v == t) {
+                break;
+            }
+            int last = graph.firstEdge(v + 1);
+            for (int e = graph.firstEdge(v); e < last; ++e) {
+                int w = graph.target(e);
+                double newDist = distTo[v] + graph.weight(e);
+                if (newDist < distTo[w]) {
+                    boolean queued = distTo[w] != Double.POSITIVE_INFINITY;
+                    distTo[w] = newDist;
+                    edgeTo[w] = e;
+                    edgeFrom[w] = v;
+                    if (queued) {
+                        heap.decreased(w);
+                    } else {
+                        heap.push(w);
+                    }
+                }
+            }
+        }
+
+        if (edgeTo[t] == NONE) {
+            return new ShortestPath.Failure<>();
+        }
+        List<Edge<Integer>> path = new ArrayList<>();
+        for (int v = t; v != s; v = edgeFrom[v]) {
+            int e = edgeTo[v];
+            path.add(new Edge<>(edgeFrom[v], v, graph.weight(e)));
+        }
+        Collections.reverse(path);
+        return new ShortestPath.Success<>(path);
+    }
+
+    // Binary min-heap of vertices ordered by distTo, which remembers where each vertex is so its
+    // priority can be decreased in place. A vertex is pushed at most once, since distances of
+    // popped vertices never decrease.
+    private static class IndexedHeap {
+        private final int[] heap;
+        private final int[] positions;
+        private final double[] priorities;
+        private int size;
+
+        IndexedHeap(int capacity, double[] priorities) {
+            this.heap = new int[capacity];
+            this.positions = new int[capacity];
+            this.priorities = priorities;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int v) {
+            heap[size] = v;
+            positions[v] = size;
+            percolateUp(size++);
+        }
+
+        int pop() {
+            int min = heap[0];
+            --size;
+            if (size > 0) {
+                move(heap[size], 0);
+                percolateDown(0);
+            }
+            return min;
+        }
+
+        void decreased(int v) {
+            percolateUp(positions[v]);
+        }
+
+        private void percolateUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (priorities[heap[parent]] <= priorities[v]) {
+                    break;
+                }
+                move(heap[parent], i);
+                i = parent;
+            }
+            move(v, i);
+        }
+
+        private void percolateDown(int i) {
+            int v = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+                    ++child;
+                }
+                if (priorities[heap[child]] >= priorities[v]) {
+                    break;
+                }
+                move(heap[child], i);
+                i = child;
+            }
+            move(v, i);
+        }
+
+        private void move(int v, int i) {
+            heap[i] = v;
+            positions[v] = i;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package graphs.shortestpaths;
+
+import graphs.CsrGraph;
+import graphs.Edge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks {@link DeltaSteppingShortestPathFinder} against {@link DijkstraShortestPathFinder} on
+ * random graphs, and exits with status 1 if any path differs in length or isn't repeatable.
+ *
+ * <pre>
+ * java graphs.shortestpaths.DeltaSteppingCheck [trials] [seed]
+ * </pre>
+ *
+ * Small deltas settle a few vertices per bucket, while large ones put whole graphs in one bucket,
+ * so both the serial and the parallel relaxation are exercised.
+ */
+public class DeltaSteppingCheck {
+    private static final double[] DELTAS = {0.05, 0.5, 5, 1000};
+    private static final double EPSILON = 1e-9;
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 373;
+        Random random = new Random(seed);
+        DijkstraShortestPathFinder<CsrGraph, Integer, Edge<Integer>> dijkstra = new DijkstraShortestPathFinder<>();
+
+        int failures = 0;
+        for (int trial = 0; trial < trials; ++trial) {
+            // Alternate small graphs with graphs large enough for parallel frontiers.
+            int vertices = trial % 2 == 0 ? 2 + random.nextInt(50) : 1000 + random.nextInt(2000);
+            int edges = vertices * (1 + random.nextInt(6));
+            CsrGraph graph = randomGraph(random, vertices, edges);
+            int start = random.nextInt(vertices);
+            int end = random.nextInt(vertices);
+
+            ShortestPath<Integer, Edge<Integer>> expected = dijkstra.findShortestPath(graph, start, end);
+            for (double delta : DELTAS) {
+                DeltaSteppingShortestPathFinder<CsrGraph, Integer, Edge<Integer>> finder =
+                    new DeltaSteppingShortestPathFinder<>(delta);
+                ShortestPath<Integer, Edge<Integer>> actual = finder.findShortestPath(graph, start, end);
+                String problem = compare(expected, actual, start, end);
+                if (problem == null && !targets(actual).equals(targets(finder.findShortestPath(graph, start, end)))) {
+                    problem = "a second run found a different path";
+                }
+                if (problem != null) {
+                    ++failures;
+                    System.out.printf("trial %d, %d vertices, %d edges, %d -> %d, delta %s: %s%n",
+                        trial, vertices, edges, start, end, delta, problem);
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "OK: " + trials + " graphs" : failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static CsrGraph randomGraph(Random random, int vertices, int edges) {
+        CsrGraph.Builder builder = CsrGraph.builder(vertices);
+        for (int e = 0; e < edges; ++e) {
+            // Some weights repeat exactly, so equally short paths are common.
+            double weight = random.nextBoolean() ? random.nextInt(4) : random.nextDouble();
+            builder.addEdge(random.nextInt(vertices), random.nextInt(vertices), weight);
+        }
+        return builder.build();
+    }
+
+    // Returns a description of how actual is wrong, or null if it's as short as expected.
+    private static String compare(ShortestPath<Integer, Edge<Integer>> expected,
+                                  ShortestPath<Integer, Edge<Integer>> actual, int start, int end) {
+        if (expected.exists() != actual.exists()) {
+            return expected.exists() ? "no path found" : "found a path that doesn't exist";
+        }
+        if (!actual.exists()) {
+            return null;
+        }
+        int at = start;
+        for (Edge<Integer> edge : actual.edges()) {
+            if (edge.from() != at) {
+                return "path isn't connected at " + at;
+            }
+            at = edge.to();
+        }
+        if (at != end) {
+            return "path ends at " + at;
+        }
+        double expectedWeight = weight(expected);
+        double actualWeight = weight(actual);
+        if (Math.abs(expectedWeight - actualWeight) > EPSILON * Math.max(1, expectedWeight)) {
+            return "weight " + actualWeight + ", expected " + expectedWeight;
+        }
+        return null;
+    }
+
+    private static double weight(ShortestPath<Integer, Edge<Integer>> path) {
+        double weight = 0;
+        for (Edge<Integer> edge : path.edges()) {
+            weight += edge.weight();
+        }
+        return weight;
+    }
+
+    private static List<Integer> targets(ShortestPath<Integer, Edge<Integer>> path) {
+        List<Integer> targets = new ArrayList<>();
+        if (path.exists()) {
+            for (Edge<Integer> edge : path.edges()) {
+                targets.add(edge.to());
+            }
+        }
+        return targets;
+    }
+}
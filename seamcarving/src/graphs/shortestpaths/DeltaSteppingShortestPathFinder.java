@@ -0,0 +1,213 @@
+package graphs.shortestpaths;
+
+import graphs.BaseEdge;
+import graphs.Graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Computes shortest paths using delta-stepping, a parallel variant of Dijkstra's algorithm.
+ *
+ * Vertices are kept in buckets of width delta by their tentative distance, and the lowest bucket
+ * is settled all at once instead of one vertex at a time. Edges no heavier than delta (light edges)
+ * can put vertices back into the current bucket, so they are relaxed repeatedly until the bucket
+ * stays empty; heavy edges are relaxed once afterwards. Looking up the outgoing edges of a bucket
+ * and relaxing them both happen in parallel on a {@link ForkJoinPool}. Relaxation first reduces the
+ * requests to the best one for every target, breaking ties by request order, and only those winners
+ * are applied to the distances and buckets on the calling thread. The result is therefore the same
+ * on every run.
+ *
+ * A small delta settles few vertices per bucket and behaves like Dijkstra's algorithm; a large delta
+ * settles many vertices at once but may relax edges several times. A good delta is usually around
+ * the average edge weight. Edge weights must be non-negative, and the graph's
+ * {@code outgoingEdgesFrom} must be safe to call from several threads at once.
+ *
+ * @see SPTShortestPathFinder for more documentation.
+ * @see DijkstraShortestPathFinder
+ */
+public class DeltaSteppingShortestPathFinder<G extends Graph<V, E>, V, E extends BaseEdge<V, E>>
+    extends SPTShortestPathFinder<G, V, E> {
+    // Frontiers smaller than this are expanded serially, since splitting them costs more than it saves.
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final double delta;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param delta the width of each bucket. Must be > 0.
+     */
+    public DeltaSteppingShortestPathFinder(double delta) {
+        this(delta, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param delta the width of each bucket. Must be > 0.
+     * @param pool the pool that looks up and relaxes outgoing edges
+     */
+    public DeltaSteppingShortestPathFinder(double delta, ForkJoinPool pool) {
+        if (!(delta > 0) || Double.isInfinite(delta)) {
+            throw new IllegalArgumentException("delta must be positive and finite: " + delta);
+        }
+        this.delta = delta;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    @Override
+    protected Map<V, E> constructShortestPathsTree(G graph, V start, V end) {
+        Map<V, Double> distTo = new HashMap<>();
+        Map<V, E> spt = new HashMap<>();
+        // Buckets are sparse and ordered by index; each keeps its vertices in insertion order.
+        TreeMap<Long, Set<V>> buckets = new TreeMap<>();
+
+        distTo.put(start, 0.0);
+        buckets.computeIfAbsent(0L, k -> new LinkedHashSet<>()).add(start);
+
+        while (!buckets.isEmpty()) {
+            long i = buckets.firstKey();
+            Set<V> settled = new LinkedHashSet<>();
+
+            // Light edges may refill the current bucket, so keep going until it stays empty.
+            Set<V> bucket;
+            while ((bucket = buckets.remove(i)) != null) {
+                settled.addAll(bucket);
+                relaxAll(findRequests(graph, new ArrayList<>(bucket), distTo, true), distTo, spt, buckets);
+            }
+            // Heavy edges can't lead back into bucket i, so they only need to be relaxed once.
+            relaxAll(findRequests(graph, new ArrayList<>(settled), distTo, false), distTo, spt, buckets);
+
+            // Every vertex closer than (i + 1) * delta is now final.
+            Double endDist = distTo.get(end);
+            if (endDist != null && endDist < (i + 1) * delta) {
+                break;
+            }
+        }
+        return spt;
+    }
+
+    // A proposed distance for the target of an edge.
+    private static class Request<E> {
+        final E edge;
+        final double dist;
+
+        Request(E edge, double dist) {
+            this.edge = edge;
+            this.dist = dist;
+        }
+    }
+
+    // Collects a relaxation request for every light (or heavy) edge out of the frontier. The
+    // distances are only read here, and the requests come back in frontier order.
+    private List<Request<E>> findRequests(G graph, List<V> frontier, Map<V, Double> distTo, boolean light) {
+        if (frontier.size() < PARALLEL_THRESHOLD) {
+            List<Request<E>> requests = new ArrayList<>();
+            for (V from : frontier) {
+                addRequests(graph, from, distTo.get(from), light, requests);
+            }
+            return requests;
+        }
+        return pool.submit(() -> frontier.parallelStream()
+            .flatMap(from -> {
+                List<Request<E>> requests = new ArrayList<>();
+                addRequests(graph, from, distTo.get(from), light, requests);
+                return requests.stream();
+            })
+            .collect(Collectors.toList())).join();
+    }
+
+    private void addRequests(G graph, V from, double fromDist, boolean light, Collection<Request<E>> requests) {
+        for (E edge : graph.outgoingEdgesFrom(from)) {
+            double weight = edge.weight();
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative edge weight: " + weight);
+            }
+            if ((weight <= delta) == light) {
+                requests.add(new Request<>(edge, fromDist + weight));
+            }
+        }
+    }
+
+    private void relaxAll(List<Request<E>> requests, Map<V, Double> distTo, Map<V, E> spt,
+                          TreeMap<Long, Set<V>> buckets) {
+        List<Request<E>> winners = requests.size() < PARALLEL_THRESHOLD
+            ? requests
+            : pool.submit(() -> findWinners(requests, distTo)).join();
+        for (Request<E> request : winners) {
+            V to = request.edge.to();
+            Double oldDist = distTo.get(to);
+            if (oldDist != null && request.dist >= oldDist) {
+                continue;
+            }
+            if (oldDist != null) {
+                Set<V> oldBucket = buckets.get(bucketOf(oldDist));
+                if (oldBucket != null) {
+                    oldBucket.remove(to);
+                    if (oldBucket.isEmpty()) {
+                        buckets.remove(bucketOf(oldDist));
+                    }
+                }
+            }
+            distTo.put(to, request.dist);
+            spt.put(to, request.edge);
+            buckets.computeIfAbsent(bucketOf(request.dist), k -> new LinkedHashSet<>()).add(to);
+        }
+    }
+
+    // Reduces the requests, in parallel, to the one with the lowest distance for every target,
+    // keeping the earliest of equal requests, and drops those that don't improve on distTo.
+    // The winners come back in request order, so they pick the same edges the serial loop would.
+    // distTo is only read here.
+    private List<Request<E>> findWinners(List<Request<E>> requests, Map<V, Double> distTo) {
+        Map<V, Integer> best = IntStream.range(0, requests.size()).parallel().boxed()
+            .collect(Collectors.toConcurrentMap(k -> requests.get(k).edge.to(), k -> k,
+                (a, b) -> {
+                    int byDist = Double.compare(requests.get(a).dist, requests.get(b).dist);
+                    return byDist < 0 || (byDist == 0 && a < b) ? a : b;
+                }));
+        return best.values().parallelStream()
+            .filter(k -> {
+                Double oldDist = distTo.get(requests.get(k).edge.to());
+                return oldDist == null || requests.get(k).dist < oldDist;
+            })
+            .sorted()
+            .map(requests::get)
+            .collect(Collectors.toList());
+    }
+
+    private long bucketOf(double dist) {
+        return (long) Math.floor(dist / delta);
+    }
+
+    @Override
+    protected ShortestPath<V, E> extractShortestPath(Map<V, E> spt, V start, V end) {
+        if (Objects.equals(start, end)) {
+            return new ShortestPath.SingleVertex<>(start);
+        }
+        E edge = spt.get(end);
+        if (edge == null) {
+            return new ShortestPath.Failure<>();
+        }
+
+        List<E> shortestPath = new ArrayList<>();
+        while (edge != null && !Objects.equals(edge.from(), start)) {
+            shortestPath.add(edge);
+            edge = spt.get(edge.from());
+        }
+        if (edge != null) {
+            shortestPath.add(edge);
+        }
+        Collections.reverse(shortestPath);
+        return new ShortestPath.Success<>(shortestPath);
+    }
+}
@@ -0,0 +1,164 @@
+package seamcarving;
+
+import java.time.Duration;
+
+/**
+ * Carves images within a time budget, reporting usable results as early as possible.
+ *
+ * Carving happens in two phases. First, the image and its energies are downsampled so that
+ * neither side is larger than the preview size, the small image is carved, and the result is
+ * scaled back up to the target size. Each block is downsampled from a fixed number of sampled
+ * pixels rather than all of them, so apart from writing out the target-size result, the preview
+ * takes the same time no matter how large the image is. Then the full-resolution image is carved
+ * seam by seam, and the partially carved image is reported every few seams until it reaches the
+ * target size or the budget runs out.
+ *
+ * @see Retargeter
+ */
+public class AnytimeCarver {
+    private static final int DEFAULT_PREVIEW_SIZE = 128;
+    private static final int DEFAULT_SEAMS_PER_UPDATE = 16;
+    // Pixels sampled along each side of a block when downsampling for the preview.
+    private static final int SAMPLES_PER_SIDE = 2;
+
+    /**
+     * Receives the results of an {@link AnytimeCarver} as they become available.
+     * Callbacks are made on the thread that called {@link #carve}.
+     */
+    public interface Listener {
+        /**
+         * Called with the coarse preview, which is already the target size.
+         */
+        void onPreview(int[][] pixels);
+
+        /**
+         * Called with the full-resolution image after every few seams, and once more when
+         * carving finishes. The image only has the target size once seamsRemoved == totalSeams.
+         */
+        void onProgress(int[][] pixels, int seamsRemoved, int totalSeams);
+    }
+
+    private final int previewSize;
+    private final int seamsPerUpdate;
+
+    public AnytimeCarver() {
+        this(DEFAULT_PREVIEW_SIZE, DEFAULT_SEAMS_PER_UPDATE);
+    }
+
+    /**
+     * @param previewSize the largest side of the downsampled image used for the preview. Must be > 0.
+     * @param seamsPerUpdate how many seams are removed between progress callbacks. Must be > 0.
+     */
+    public AnytimeCarver(int previewSize, int seamsPerUpdate) {
+        if (previewSize <= 0 || seamsPerUpdate <= 0) {
+            throw new IllegalArgumentException("previewSize and seamsPerUpdate must be positive");
+        }
+        this.previewSize = previewSize;
+        this.seamsPerUpdate = seamsPerUpdate;
+    }
+
+    /**
+     * Shrinks the image to targetWidth by targetHeight, spending at most about budget doing so.
+     *
+     * @param pixels the image, indexed by column and then row
+     * @param energies the energies of the image, indexed by column and then row
+     * @return the exact result if carving finished within the budget, and the preview otherwise
+     */
+    public int[][] carve(int[][] pixels, double[][] energies, int targetWidth, int targetHeight,
+                         Duration budget, Listener listener) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        int width = pixels.length;
+        int height = pixels[0].length;
+        if (targetWidth <= 0 || targetHeight <= 0 || targetWidth > width || targetHeight > height) {
+            throw new IllegalArgumentException("Can't carve a " + width + "x" + height
+                + " image to " + targetWidth + "x" + targetHeight);
+        }
+
+        // Phase 1: the preview. Skip it if the image is already small enough to carve exactly.
+        int factor = (Math.max(width, height) + previewSize - 1) / previewSize;
+        int[][] best = null;
+        if (factor > 1) {
+            best = preview(pixels, energies, targetWidth, targetHeight, factor);
+            listener.onPreview(best);
+        }
+
+        // Phase 2: the exact result, for as long as the budget allows. Copying the image into the
+        // retargeter alone costs time proportional to its size, so don't start if time is up.
+        if (best != null && System.nanoTime() - deadline > 0) {
+            return best;
+        }
+        Retargeter retargeter = new Retargeter(pixels, energies);
+        int totalSeams = (width - targetWidth) + (height - targetHeight);
+        int removed = 0;
+        while (removed < totalSeams) {
+            if (best != null && System.nanoTime() - deadline > 0) {
+                return best;
+            }
+            retargeter.removeNextSeam(targetWidth, targetHeight);
+            ++removed;
+            if (removed % seamsPerUpdate == 0 && removed < totalSeams) {
+                listener.onProgress(retargeter.pixels(), removed, totalSeams);
+            }
+        }
+        int[][] exact = retargeter.pixels();
+        listener.onProgress(exact, totalSeams, totalSeams);
+        return exact;
+    }
+
+    // Carves a downsampled copy of the image and scales the result up to the target size.
+    private static int[][] preview(int[][] pixels, double[][] energies, int targetWidth, int targetHeight, int factor) {
+        int width = pixels.length;
+        int height = pixels[0].length;
+        int coarseWidth = (width + factor - 1) / factor;
+        int coarseHeight = (height + factor - 1) / factor;
+        int samples = Math.min(SAMPLES_PER_SIDE, factor);
+
+        int[][] coarsePixels = new int[coarseWidth][coarseHeight];
+        double[][] coarseEnergies = new double[coarseWidth][coarseHeight];
+        for (int cx = 0; cx < coarseWidth; ++cx) {
+            int x0 = cx * factor;
+            int blockWidth = Math.min(factor, width - x0);
+            for (int cy = 0; cy < coarseHeight; ++cy) {
+                int y0 = cy * factor;
+                int blockHeight = Math.min(factor, height - y0);
+                // Average every channel and the energy over a grid of pixels spread evenly over
+                // the block, so the cost per block doesn't grow with the factor.
+                long red = 0;
+                long green = 0;
+                long blue = 0;
+                double energy = 0;
+                for (int sx = 0; sx < samples; ++sx) {
+                    int x = x0 + (2 * sx + 1) * blockWidth / (2 * samples);
+                    for (int sy = 0; sy < samples; ++sy) {
+                        int y = y0 + (2 * sy + 1) * blockHeight / (2 * samples);
+                        int rgb = pixels[x][y];
+                        red += (rgb >> 16) & 0xFF;
+                        green += (rgb >> 8) & 0xFF;
+                        blue += rgb & 0xFF;
+                        energy += energies[x][y];
+                    }
+                }
+                int count = samples * samples;
+                int alpha = pixels[x0][y0] & 0xFF000000;
+                coarsePixels[cx][cy] = alpha | (int) (red / count) << 16 | (int) (green / count) << 8
+                    | (int) (blue / count);
+                coarseEnergies[cx][cy] = energy / count;
+            }
+        }
+
+        Retargeter retargeter = new Retargeter(coarsePixels, coarseEnergies);
+        retargeter.retarget(Math.max(1, Math.round((float) targetWidth / factor)),
+            Math.max(1, Math.round((float) targetHeight / factor)));
+        int[][] carved = retargeter.pixels();
+
+        // Nearest-neighbor upsampling to exactly the target size.
+        int[][] result = new int[targetWidth][targetHeight];
+        for (int x = 0; x < targetWidth; ++x) {
+            int[] column = carved[(int) ((long) x * carved.length / targetWidth)];
+            for (int y = 0; y < targetHeight; ++y) {
+                result[x][y] = column[(int) ((long) y * column.length / targetHeight)];
+            }
+        }
+        return result;
+    }
+}
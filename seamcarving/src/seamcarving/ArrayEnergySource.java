@@ -0,0 +1,46 @@
+package seamcarving;
+
+/**
+ * {@link EnergyGrid} view of an in-memory energy matrix, indexed by column and then row.
+ *
+ * @see EnergyGrid
+ */
+public class ArrayEnergySource implements EnergyGrid {
+    private final double[][] energies;
+
+    public ArrayEnergySource(double[][] energies) {
+        this.energies = energies;
+    }
+
+    @Override
+    public int width() {
+        return energies.length;
+    }
+
+    @Override
+    public int height() {
+        return energies[0].length;
+    }
+
+    @Override
+    public double energy(int x, int y) {
+        return energies[x][y];
+    }
+
+    @Override
+    public void readColumn(int x, double[] dest) {
+        System.arraycopy(energies[x], 0, dest, 0, energies[x].length);
+    }
+
+    @Override
+    public void readColumn(int x, int y, int length, double[] dest, int offset) {
+        System.arraycopy(energies[x], y, dest, offset, length);
+    }
+
+    @Override
+    public void readRow(int y, double[] dest) {
+        for (int x = 0; x < energies.length; ++x) {
+            dest[x] = energies[x][y];
+        }
+    }
+}
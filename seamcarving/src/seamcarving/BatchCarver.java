@@ -0,0 +1,518 @@
+package seamcarving;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Command-line tool that carves every image in a directory or manifest.
+ *
+ * Images go through four stages: decode, energy, carve and encode. Every stage has its own
+ * threads and hands images to the next through a bounded queue, so reading and writing files
+ * overlap with carving, and a slow stage holds back the ones before it instead of letting
+ * decoded images pile up in memory. Images that fail are reported and skipped. An {@link Error}
+ * in any stage, such as running out of memory, stops every stage and is rethrown.
+ *
+ * Every output keeps the path of its input relative to the input directory or manifest, with the
+ * extension replaced by the output format. Inputs outside the manifest's directory are written
+ * straight to the output directory. An input whose output is already taken by an earlier input,
+ * like a.jpg after a.png, is reported and skipped rather than overwriting it.
+ *
+ * Once every image is done, the number of images per second and the 50th and 99th percentile
+ * time each stage spent per image are written to the report.
+ *
+ * <pre>
+ * java seamcarving.BatchCarver --input photos/ --output carved/ --width 640 --carve-threads 8
+ * </pre>
+ *
+ * @see Retargeter
+ */
+public class BatchCarver {
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: BatchCarver --input <directory or manifest> --output <directory> [options]",
+        "  --width <pixels>          target width (default: keep the width)",
+        "  --height <pixels>         target height (default: keep the height)",
+        "  --format <name>           output image format (default: png)",
+        "  --decode-threads <n>      threads reading images (default: 2)",
+        "  --energy-threads <n>      threads computing energies (default: half the cores)",
+        "  --carve-threads <n>       threads carving (default: all the cores)",
+        "  --encode-threads <n>      threads writing images (default: 2)",
+        "  --queue-capacity <n>      images waiting between two stages (default: 16)",
+        "  --report <file>           where to write the report (default: standard output)",
+        "A manifest is a text file with one image path per line, relative to the manifest.",
+        "Blank lines and lines starting with # are ignored.");
+
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".gif"};
+    // How often threads blocked on a queue or a stage check whether the batch was aborted.
+    private static final long POLL_MILLIS = 100;
+
+    // Marks the end of the images in a queue.
+    private static final Image END = new Image(null, null);
+
+    private final Options options;
+    private final AtomicInteger carved;
+    private final AtomicInteger failed;
+    // The first Error thrown by a stage, which aborts the batch.
+    private volatile Error fatal;
+
+    private BatchCarver(Options options) {
+        this.options = options;
+        this.carved = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        BatchCarver carver = new BatchCarver(options);
+        String report = carver.run();
+        if (options.report == null) {
+            System.out.print(report);
+        } else {
+            Files.write(options.report, report.getBytes(StandardCharsets.UTF_8));
+        }
+        if (carver.failed.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    // One image on its way through the pipeline. Each stage clears what later stages don't need.
+    private static class Image {
+        final Path input;
+        final Path output;
+        int[][] pixels;
+        double[][] energies;
+
+        Image(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    private interface Task {
+        void process(Image image) throws IOException;
+    }
+
+    // Runs every image through the pipeline and returns the report.
+    private String run() throws IOException, InterruptedException {
+        Files.createDirectories(options.output);
+        int capacity = options.queueCapacity;
+        BlockingQueue<Image> toDecode = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Image> toEnergy = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Image> toCarve = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Image> toEncode = new ArrayBlockingQueue<>(capacity);
+
+        List<Stage> stages = Arrays.asList(
+            new Stage("decode", options.decodeThreads, toDecode, toEnergy, BatchCarver::decode),
+            new Stage("energy", options.energyThreads, toEnergy, toCarve, BatchCarver::computeEnergies),
+            new Stage("carve", options.carveThreads, toCarve, toEncode, this::carve),
+            new Stage("encode", options.encodeThreads, toEncode, null, this::encode));
+
+        long start = System.nanoTime();
+        for (Stage stage : stages) {
+            stage.start();
+        }
+        // Only the outputs are remembered, to find inputs that would overwrite each other.
+        Set<Path> outputs = new HashSet<>();
+        try {
+            forEachInput((root, input) -> {
+                Path output = outputFor(root, input);
+                if (!outputs.add(output)) {
+                    failed.incrementAndGet();
+                    System.err.println("Skipping " + input + ": " + output + " is already written by another image");
+                    return;
+                }
+                try {
+                    Image image = new Image(input, output);
+                    // A dead pipeline stops taking images, so don't wait for room forever.
+                    while (!toDecode.offer(image, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        checkFatal();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while reading inputs", e);
+                }
+            });
+            while (!toDecode.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFatal();
+            }
+            // Each stage ends the next one, so waiting for them in order waits for everything.
+            for (Stage stage : stages) {
+                stage.awaitEnd();
+            }
+        } finally {
+            for (Stage stage : stages) {
+                stage.pool.shutdownNow();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return report(stages, elapsed);
+    }
+
+    // Lists the inputs lazily, so images start carving before a huge directory or manifest is read.
+    // Every input is passed along with the directory its output path is relative to.
+    private void forEachInput(BiConsumer<Path, Path> consumer) throws IOException {
+        if (Files.isDirectory(options.input)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(options.input, BatchCarver::isImage)) {
+                for (Path file : files) {
+                    consumer.accept(options.input, file);
+                }
+            }
+        } else {
+            Path base = options.input.toAbsolutePath().getParent();
+            try (BufferedReader reader = Files.newBufferedReader(options.input, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        consumer.accept(base, base.resolve(line));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return Files.isRegularFile(file);
+            }
+        }
+        return false;
+    }
+
+    // The input's path relative to root, under the output directory and with the output format's
+    // extension. Inputs outside root only keep their file name.
+    private Path outputFor(Path root, Path input) {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        Path absoluteInput = input.toAbsolutePath().normalize();
+        Path relative = absoluteInput.startsWith(absoluteRoot)
+            ? absoluteRoot.relativize(absoluteInput)
+            : absoluteInput.getFileName();
+        String name = relative.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return options.output.resolve(relative).resolveSibling(name + "." + options.format).normalize();
+    }
+
+    private static void decode(Image image) throws IOException {
+        BufferedImage decoded = ImageIO.read(image.input.toFile());
+        if (decoded == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        int[] rows = decoded.getRGB(0, 0, width, height, null, 0, width);
+        int[][] pixels = new int[width][height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                pixels[x][y] = rows[y * width + x];
+            }
+        }
+        image.pixels = pixels;
+    }
+
+    private static void computeEnergies(Image image) {
+        image.energies = dualGradientEnergies(image.pixels);
+    }
+
+    /**
+     * Returns the dual-gradient energy of every pixel: the square root of the sum of the squared
+     * differences between the pixels on either side, over every color channel and both directions.
+     * Pixels on the border use themselves in place of their missing neighbor.
+     */
+    static double[][] dualGradientEnergies(int[][] pixels) {
+        int width = pixels.length;
+        int height = pixels[0].length;
+        double[][] energies = new double[width][height];
+        for (int x = 0; x < width; ++x) {
+            int[] left = pixels[Math.max(x - 1, 0)];
+            int[] column = pixels[x];
+            int[] right = pixels[Math.min(x + 1, width - 1)];
+            for (int y = 0; y < height; ++y) {
+                int dx = gradient(left[y], right[y]);
+                int dy = gradient(column[Math.max(y - 1, 0)], column[Math.min(y + 1, height - 1)]);
+                energies[x][y] = Math.sqrt(dx + dy);
+            }
+        }
+        return energies;
+    }
+
+    // Sum of the squared differences of the color channels of two pixels.
+    private static int gradient(int a, int b) {
+        int red = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+        int green = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+        int blue = (a & 0xFF) - (b & 0xFF);
+        return red * red + green * green + blue * blue;
+    }
+
+    private void carve(Image image) {
+        int width = image.pixels.length;
+        int height = image.pixels[0].length;
+        // Images can only shrink, so a dimension that is already small enough stays as it is.
+        int targetWidth = options.width > 0 ? Math.min(options.width, width) : width;
+        int targetHeight = options.height > 0 ? Math.min(options.height, height) : height;
+        Retargeter retargeter = new Retargeter(image.pixels, image.energies);
+        image.energies = null;
+        retargeter.retarget(targetWidth, targetHeight);
+        image.pixels = retargeter.pixels();
+    }
+
+    private void encode(Image image) throws IOException {
+        int width = image.pixels.length;
+        int height = image.pixels[0].length;
+        int[] rows = new int[width * height];
+        for (int x = 0; x < width; ++x) {
+            int[] column = image.pixels[x];
+            for (int y = 0; y < height; ++y) {
+                rows[y * width + x] = column[y];
+            }
+        }
+        image.pixels = null;
+        BufferedImage encoded = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        encoded.setRGB(0, 0, width, height, rows, 0, width);
+        Files.createDirectories(image.output.getParent());
+        if (!ImageIO.write(encoded, options.format, image.output.toFile())) {
+            throw new IOException("No writer for format " + options.format);
+        }
+        carved.incrementAndGet();
+    }
+
+    // A pool of threads that take images from one queue, process them, and put them on the next.
+    private class Stage {
+        final String name;
+        final int threads;
+        final ExecutorService pool;
+        final Latencies latencies;
+        private final BlockingQueue<Image> input;
+        private final BlockingQueue<Image> output;
+        private final Task task;
+        private final AtomicInteger running;
+
+        Stage(String name, int threads, BlockingQueue<Image> input, BlockingQueue<Image> output, Task task) {
+            this.name = name;
+            this.threads = threads;
+            this.pool = Executors.newFixedThreadPool(threads);
+            this.latencies = new Latencies();
+            this.input = input;
+            this.output = output;
+            this.task = task;
+            this.running = new AtomicInteger(threads);
+        }
+
+        void start() {
+            for (int i = 0; i < threads; ++i) {
+                pool.execute(this::work);
+            }
+        }
+
+        // Waits for every thread of the stage to finish, and rethrows the Error that aborted the
+        // batch if there was one. The caller shuts down the other stages in that case.
+        void awaitEnd() throws InterruptedException {
+            pool.shutdown();
+            while (!pool.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFatal();
+            }
+            checkFatal();
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    Image image = input.take();
+                    if (image == END) {
+                        // Put it back for the other threads of this stage. The queue has room, since
+                        // nothing is put on it after END.
+                        input.put(END);
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        task.process(image);
+                    } catch (IOException | RuntimeException e) {
+                        fail(image, e);
+                        continue;
+                    }
+                    latencies.record(System.nanoTime() - start);
+                    if (output != null) {
+                        output.put(image);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Error e) {
+                // Something like running out of memory, which the next image would likely hit too.
+                System.err.println("Stopping after an error in the " + name + " stage: " + e);
+                if (fatal == null) {
+                    fatal = e;
+                }
+            } finally {
+                // The last thread to finish ends the next stage, unless the batch was aborted, in which
+                // case the next stage may not be taking images anymore.
+                if (running.decrementAndGet() == 0 && output != null && fatal == null
+                    && !Thread.currentThread().isInterrupted()) {
+                    try {
+                        output.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        private void fail(Image image, Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Failed to " + name + " " + image.input + ": " + e);
+        }
+    }
+
+    // Per-image times of one stage, in nanoseconds.
+    private static class Latencies {
+        private long[] times = new long[1024];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == times.length) {
+                times = Arrays.copyOf(times, 2 * count);
+            }
+            times[count++] = nanos;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        // Nearest-rank percentile in milliseconds, or 0 if nothing was recorded.
+        synchronized double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(times, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return sorted[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+
+    private void checkFatal() {
+        Error error = fatal;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private String report(List<Stage> stages, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%d images carved, %d failed in %.3f s (%.2f images/sec)%n",
+            carved.get(), failed.get(), seconds, seconds > 0 ? carved.get() / seconds : 0));
+        report.append(String.format(Locale.ROOT, "%-8s %8s %10s %12s %12s%n",
+            "stage", "threads", "images", "p50 ms", "p99 ms"));
+        for (Stage stage : stages) {
+            report.append(String.format(Locale.ROOT, "%-8s %8d %10d %12.3f %12.3f%n",
+                stage.name, stage.threads, stage.latencies.count(),
+                stage.latencies.percentileMillis(50), stage.latencies.percentileMillis(99)));
+        }
+        return report.toString();
+    }
+
+    // Parsed command-line options.
+    private static class Options {
+        Path input;
+        Path output;
+        Path report;
+        int width;
+        int height;
+        String format = "png";
+        int decodeThreads = 2;
+        int energyThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int carveThreads = Runtime.getRuntime().availableProcessors();
+        int encodeThreads = 2;
+        int queueCapacity = 16;
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < args.length; i += 2) {
+                if (!args[i].startsWith("--") || i + 1 == args.length) {
+                    throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+                }
+                values.put(args[i].substring(2), args[i + 1]);
+            }
+
+            Options options = new Options();
+            List<String> unknown = new ArrayList<>(values.keySet());
+            unknown.removeAll(Arrays.asList("input", "output", "report", "width", "height", "format",
+                "decode-threads", "energy-threads", "carve-threads", "encode-threads", "queue-capacity"));
+            if (!unknown.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options: " + unknown);
+            }
+            if (!values.containsKey("input") || !values.containsKey("output")) {
+                throw new IllegalArgumentException("--input and --output are required");
+            }
+            options.input = Paths.get(values.get("input"));
+            options.output = Paths.get(values.get("output"));
+            if (values.containsKey("report")) {
+                options.report = Paths.get(values.get("report"));
+            }
+            options.width = positive(values, "width", 0);
+            options.height = positive(values, "height", 0);
+            if (options.width == 0 && options.height == 0) {
+                throw new IllegalArgumentException("At least one of --width and --height is required");
+            }
+            options.format = values.getOrDefault("format", options.format);
+            options.decodeThreads = positive(values, "decode-threads", options.decodeThreads);
+            options.energyThreads = positive(values, "energy-threads", options.energyThreads);
+            options.carveThreads = positive(values, "carve-threads", options.carveThreads);
+            options.encodeThreads = positive(values, "encode-threads", options.encodeThreads);
+            options.queueCapacity = positive(values, "queue-capacity", options.queueCapacity);
+            return options;
+        }
+
+        private static int positive(Map<String, String> values, String name, int defaultValue) {
+            String value = values.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below.
+            }
+            throw new IllegalArgumentException("--" + name + " must be a positive integer: " + value);
+        }
+    }
+}
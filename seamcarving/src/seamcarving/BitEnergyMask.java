@@ -0,0 +1,110 @@
+package seamcarving;
+
+/**
+ * {@link EnergyMask} that stores one bit per pixel for protected pixels and one for pixels that
+ * should be removed.
+ *
+ * Protected pixels get a large positive bias, so seams avoid them, and pixels to remove get a
+ * large negative bias, so seams go through them. If a pixel is marked both ways, protection wins.
+ * Masks are immutable and are created with a {@link Builder}.
+ *
+ * @see EnergyMask
+ */
+public class BitEnergyMask implements EnergyMask {
+    public static final double DEFAULT_PROTECT_BIAS = 1e6;
+    public static final double DEFAULT_REMOVE_BIAS = -1e6;
+
+    private final int height;
+    // Bit x * height + y is set if the pixel at (x, y) is marked.
+    private final long[] protect;
+    private final long[] remove;
+    private final double protectBias;
+    private final double removeBias;
+
+    private BitEnergyMask(Builder builder) {
+        this.height = builder.height;
+        this.protect = builder.protect.clone();
+        this.remove = builder.remove.clone();
+        this.protectBias = builder.protectBias;
+        this.removeBias = builder.removeBias;
+    }
+
+    @Override
+    public double bias(int x, int y) {
+        long bit = (long) x * height + y;
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((protect[word] & mask) != 0) {
+            return protectBias;
+        } else if ((remove[word] & mask) != 0) {
+            return removeBias;
+        }
+        return 0;
+    }
+
+    @Override
+    public double minBias() {
+        return Math.min(0, Math.min(protectBias, removeBias));
+    }
+
+    /**
+     * Builds {@link BitEnergyMask}s. A builder can keep being used after build() is called,
+     * without affecting the masks it already built.
+     */
+    public static class Builder {
+        private final int width;
+        private final int height;
+        private final long[] protect;
+        private final long[] remove;
+        private double protectBias;
+        private double removeBias;
+
+        public Builder(int width, int height) {
+            this.width = width;
+            this.height = height;
+            int words = (int) (((long) width * height + 63) / 64);
+            this.protect = new long[words];
+            this.remove = new long[words];
+            this.protectBias = DEFAULT_PROTECT_BIAS;
+            this.removeBias = DEFAULT_REMOVE_BIAS;
+        }
+
+        /** Marks every pixel with x0 <= x < x1 and y0 <= y < y1 as protected. */
+        public Builder protect(int x0, int y0, int x1, int y1) {
+            set(protect, x0, y0, x1, y1);
+            return this;
+        }
+
+        /** Marks every pixel with x0 <= x < x1 and y0 <= y < y1 for removal. */
+        public Builder remove(int x0, int y0, int x1, int y1) {
+            set(remove, x0, y0, x1, y1);
+            return this;
+        }
+
+        public Builder protectBias(double protectBias) {
+            this.protectBias = protectBias;
+            return this;
+        }
+
+        public Builder removeBias(double removeBias) {
+            this.removeBias = removeBias;
+            return this;
+        }
+
+        private void set(long[] bits, int x0, int y0, int x1, int y1) {
+            if (x0 < 0 || y0 < 0 || x1 > width || y1 > height) {
+                throw new IndexOutOfBoundsException("Rectangle is outside of the " + width + "x" + height + " mask");
+            }
+            for (int x = x0; x < x1; ++x) {
+                for (int y = y0; y < y1; ++y) {
+                    long bit = (long) x * height + y;
+                    bits[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+
+        public BitEnergyMask build() {
+            return new BitEnergyMask(this);
+        }
+    }
+}
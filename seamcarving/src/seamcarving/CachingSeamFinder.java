@@ -0,0 +1,119 @@
+package seamcarving;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Carves images with seams found by another {@link SeamFinder}, and remembers the seams of every
+ * carve it has done.
+ *
+ * A carve is looked up by a hash of the energies and the target size, so repeating a carve only
+ * costs one pass over the energies to hash them, instead of a seam search per removed seam.
+ * The single-seam {@link SeamFinder} methods are passed straight to the wrapped finder, since
+ * hashing the energies for every seam takes time of the same order as the search it would save.
+ *
+ * @see SeamFinder
+ * @see SeamCache
+ */
+public class CachingSeamFinder implements SeamFinder {
+    private final SeamFinder finder;
+    private final SeamCache cache;
+    private final DynamicProgrammingSeamFinder transposer;
+
+    public CachingSeamFinder(SeamFinder finder, SeamCache cache) {
+        this.finder = finder;
+        this.cache = cache;
+        this.transposer = new DynamicProgrammingSeamFinder();
+    }
+
+    @Override
+    public List<Integer> findHorizontalSeam(double[][] energies) {
+        return finder.findHorizontalSeam(energies);
+    }
+
+    @Override
+    public List<Integer> findVerticalSeam(double[][] energies) {
+        return finder.findVerticalSeam(energies);
+    }
+
+    /**
+     * Returns the seams that carve the image down to targetWidth by targetHeight: first the
+     * vertical seams, then the horizontal seams. Every seam is in the coordinates of the image
+     * left by the seams before it. Energies aren't recomputed as seams are removed.
+     *
+     * The returned list may be shared with other callers, so it can't be modified.
+     *
+     * @throws IllegalArgumentException if the target is empty or larger than the image
+     */
+    public List<Seam> findSeams(double[][] energies, int targetWidth, int targetHeight) {
+        int width = energies.length;
+        int height = energies[0].length;
+        if (targetWidth <= 0 || targetHeight <= 0 || targetWidth > width || targetHeight > height) {
+            throw new IllegalArgumentException("Can't carve a " + width + "x" + height
+                + " image to " + targetWidth + "x" + targetHeight);
+        }
+        SeamCache.Key key = SeamCache.key(energies, targetWidth, targetHeight);
+        List<Seam> seams = cache.get(key);
+        if (seams == null) {
+            seams = carve(energies, targetWidth, targetHeight);
+            seams = Collections.unmodifiableList(seams);
+            cache.put(key, seams);
+        }
+        return seams;
+    }
+
+    /**
+     * Carves the image down to targetWidth by targetHeight with the seams from
+     * {@link #findSeams(double[][], int, int)}.
+     *
+     * @param pixels the image, indexed by column and then row
+     * @return the carved image, indexed by column and then row
+     */
+    public int[][] carve(int[][] pixels, double[][] energies, int targetWidth, int targetHeight) {
+        if (pixels.length != energies.length || pixels[0].length != energies[0].length) {
+            throw new IllegalArgumentException("Energies and pixels have different sizes");
+        }
+        List<Seam> seams = findSeams(energies, targetWidth, targetHeight);
+        int verticalSeams = pixels.length - targetWidth;
+        // A vertical seam has one index per row, so it is removed from the rows of the image.
+        int[][] rows = transpose(pixels);
+        for (Seam seam : seams.subList(0, verticalSeams)) {
+            rows = seam.removeFrom(rows);
+        }
+        int[][] columns = transpose(rows);
+        for (Seam seam : seams.subList(verticalSeams, seams.size())) {
+            columns = seam.removeFrom(columns);
+        }
+        return columns;
+    }
+
+    // Finds the seams for a cache miss. A vertical seam of the energies is a horizontal seam of
+    // their transpose, so every seam is found as a horizontal seam of the remaining lines.
+    private List<Seam> carve(double[][] energies, int targetWidth, int targetHeight) {
+        List<Seam> seams = new ArrayList<>((energies.length - targetWidth) + (energies[0].length - targetHeight));
+        double[][] rows = transposer.transpose(energies);
+        while (rows[0].length > targetWidth) {
+            Seam seam = Seam.of(finder.findHorizontalSeam(rows));
+            seams.add(seam);
+            rows = seam.removeFrom(rows);
+        }
+        double[][] columns = transposer.transpose(rows);
+        while (columns[0].length > targetHeight) {
+            Seam seam = Seam.of(finder.findHorizontalSeam(columns));
+            seams.add(seam);
+            columns = seam.removeFrom(columns);
+        }
+        return seams;
+    }
+
+    private static int[][] transpose(int[][] matrix) {
+        int[][] result = new int[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; ++i) {
+            for (int j = 0; j < matrix[i].length; ++j) {
+                result[j][i] = matrix[i][j];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+package seamcarving;
+
+import java.util.Arrays;
+
+/**
+ * A precomputed plan for resizing an image to any width between its minimum width and its
+ * original width, without finding any seams at resize time.
+ *
+ * The plan is built once by removing seams down to the minimum width and recording, for every
+ * pixel, the number of the seam that removed it (its rank). Pixels that are never removed get a
+ * rank equal to the number of seams. Rendering the image at width w then keeps exactly the pixels
+ * whose rank is at least (original width - w), which is a single linear scan over the image.
+ *
+ * Ranks are stored in a short[] when they fit, and in an int[] otherwise.
+ *
+ * @see SeamInserter
+ */
+public class CarvePlan {
+    private final int width;
+    private final int height;
+    private final int minWidth;
+    // Row-major ranks. Exactly one of these is non-null.
+    private final short[] shortRanks;
+    private final int[] intRanks;
+
+    private CarvePlan(int width, int height, int minWidth, int[][] seams) {
+        this.width = width;
+        this.height = height;
+        this.minWidth = minWidth;
+
+        int removable = seams.length;
+        int[] ranks = new int[width * height];
+        Arrays.fill(ranks, removable);
+        for (int s = 0; s < seams.length; ++s) {
+            for (int y = 0; y < height; ++y) {
+                ranks[y * width + seams[s][y]] = s;
+            }
+        }
+
+        if (removable <= Short.MAX_VALUE) {
+            this.shortRanks = new short[ranks.length];
+            for (int i = 0; i < ranks.length; ++i) {
+                shortRanks[i] = (short) ranks[i];
+            }
+            this.intRanks = null;
+        } else {
+            this.shortRanks = null;
+            this.intRanks = ranks;
+        }
+    }
+
+    /**
+     * Builds {@link CarvePlan}s.
+     */
+    public static class Builder {
+        private final double[][] energies;
+        private DynamicProgrammingSeamFinder finder;
+        private int minWidth;
+
+        /**
+         * @param energies the energies of the image, indexed by column and then row
+         */
+        public Builder(double[][] energies) {
+            this.energies = energies;
+            this.finder = new DynamicProgrammingSeamFinder();
+            this.minWidth = 1;
+        }
+
+        /**
+         * Sets the smallest width the plan can render. Defaults to 1.
+         */
+        public Builder minWidth(int minWidth) {
+            this.minWidth = minWidth;
+            return this;
+        }
+
+        /**
+         * Sets the finder used to find seams while building the plan.
+         */
+        public Builder finder(DynamicProgrammingSeamFinder finder) {
+            this.finder = finder;
+            return this;
+        }
+
+        /**
+         * Removes seams down to the minimum width and records the order they were removed in.
+         *
+         * @throws IllegalArgumentException if the minimum width is less than 1 or larger than the image
+         */
+        public CarvePlan build() {
+            int width = energies.length;
+            if (minWidth < 1 || minWidth > width) {
+                throw new IllegalArgumentException("Invalid minimum width " + minWidth + " for width " + width);
+            }
+            int[][] seams = new SeamInserter(finder).findVerticalSeams(energies, width - minWidth);
+            return new CarvePlan(width, energies[0].length, minWidth, seams);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int minWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Returns the number of the seam that removes the pixel at (x, y), or width() - minWidth()
+     * if the pixel is never removed.
+     */
+    public int rank(int x, int y) {
+        int i = y * width + x;
+        return shortRanks != null ? shortRanks[i] : intRanks[i];
+    }
+
+    /**
+     * Renders the image at the given width.
+     *
+     * @param pixels the original image in row-major order, width() * height() packed RGB ints
+     * @return the resized image in row-major order, targetWidth * height() packed RGB ints
+     * @throws IllegalArgumentException if targetWidth isn't between minWidth() and width()
+     */
+    public int[] render(int[] pixels, int targetWidth) {
+        if (pixels.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels");
+        }
+        int removed = seamsToRemove(targetWidth);
+
+        // Every row has exactly `removed` pixels with a rank below the threshold,
+        // so the kept pixels fill the output exactly.
+        int[] result = new int[targetWidth * height];
+        int out = 0;
+        if (shortRanks != null) {
+            for (int i = 0; i < shortRanks.length; ++i) {
+                if (shortRanks[i] >= removed) {
+                    result[out++] = pixels[i];
+                }
+            }
+        } else {
+            for (int i = 0; i < intRanks.length; ++i) {
+                if (intRanks[i] >= removed) {
+                    result[out++] = pixels[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders the image at the given width.
+     *
+     * @param pixels the original image, indexed by column and then row
+     * @return the resized image, indexed by column and then row
+     * @throws IllegalArgumentException if targetWidth isn't between minWidth() and width()
+     */
+    public int[][] render(int[][] pixels, int targetWidth) {
+        if (pixels.length != width || pixels[0].length != height) {
+            throw new IllegalArgumentException("Expected a " + width + "x" + height + " image");
+        }
+        int removed = seamsToRemove(targetWidth);
+
+        int[][] result = new int[targetWidth][height];
+        for (int y = 0; y < height; ++y) {
+            int resultX = 0;
+            for (int x = 0; x < width; ++x) {
+                if (rank(x, y) >= removed) {
+                    result[resultX++][y] = pixels[x][y];
+                }
+            }
+        }
+        return result;
+    }
+
+    private int seamsToRemove(int targetWidth) {
+        if (targetWidth < minWidth || targetWidth > width) {
+            throw new IllegalArgumentException("Width " + targetWidth + " is outside of [" + minWidth + ", " + width + "]");
+        }
+        return width - targetWidth;
+    }
+}
@@ -0,0 +1,148 @@
+package seamcarving;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking front end for carving images on a fixed pool of worker threads.
+ *
+ * Submitting a job never blocks: if every worker is busy and the admission queue is full, the job
+ * fails right away with a {@link RejectedExecutionException}, so an overloaded service sheds work
+ * instead of piling up threads. Jobs check before they start and between seams whether they have been
+ * cancelled or have passed their deadline, and stop early if so.
+ *
+ * @see Retargeter
+ */
+public class CarvingService implements AutoCloseable {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads the number of jobs that can carve at the same time. Must be > 0.
+     * @param queueCapacity the number of jobs that can wait for a worker. Must be > 0.
+     */
+    public CarvingService(int threads, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Submits a job that shrinks the image to targetWidth by targetHeight.
+     *
+     * @param pixels the image, indexed by column and then row. It must not change until the job is done.
+     * @param energies the energies of the image, indexed by column and then row
+     * @param deadline how long the job may take from now, or null for no deadline.
+     *                 Jobs that run past it fail with a {@link TimeoutException}.
+     */
+    public Job submit(int[][] pixels, double[][] energies, int targetWidth, int targetHeight, Duration deadline) {
+        long deadlineNanos = deadline == null ? NO_DEADLINE : System.nanoTime() + deadline.toNanos();
+        Job job = new Job();
+        try {
+            executor.execute(() -> job.run(pixels, energies, targetWidth, targetHeight, deadlineNanos));
+        } catch (RejectedExecutionException e) {
+            job.fail(e);
+        }
+        return job;
+    }
+
+    /**
+     * Stops accepting jobs. Jobs that were already accepted still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * A submitted carving job.
+     */
+    public static class Job {
+        private final CompletableFuture<int[][]> result;
+        private final SubmissionPublisher<Integer> progress;
+
+        private Job() {
+            this.result = new CompletableFuture<>();
+            // Updates are delivered on the publisher's own executor, so a slow subscriber can't stall
+            // the worker, and they are dropped rather than blocking if a subscriber falls behind.
+            this.progress = new SubmissionPublisher<>();
+        }
+
+        /**
+         * Returns the carved image, indexed by column and then row.
+         * Cancelling the future stops the job before its next seam.
+         */
+        public CompletableFuture<int[][]> result() {
+            return result;
+        }
+
+        /**
+         * Publishes the number of seams removed so far after every seam. Updates are best-effort:
+         * updates sent before a subscriber subscribes, or while it is too far behind, are dropped.
+         */
+        public Flow.Publisher<Integer> progress() {
+            return progress;
+        }
+
+        /**
+         * Cancels the job. Equivalent to cancelling the result future.
+         */
+        public boolean cancel() {
+            return result.cancel(false);
+        }
+
+        private void run(int[][] pixels, double[][] energies, int targetWidth, int targetHeight, long deadlineNanos) {
+            try {
+                // Building the retargeter copies the whole image, so don't start on a job that is
+                // already cancelled or out of time.
+                if (stopped(0, deadlineNanos)) {
+                    return;
+                }
+                Retargeter retargeter = new Retargeter(pixels, energies);
+                int removed = 0;
+                while (!stopped(removed, deadlineNanos)) {
+                    if (!retargeter.removeNextSeam(targetWidth, targetHeight)) {
+                        result.complete(retargeter.pixels());
+                        progress.close();
+                        return;
+                    }
+                    ++removed;
+                    progress.offer(removed, null);
+                }
+            } catch (Throwable e) {
+                // Anything thrown here would otherwise leave the result and the progress
+                // publisher open forever. Errors still reach the executor's thread.
+                fail(e);
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+            }
+        }
+
+        // Ends the job and returns true if it was cancelled or its deadline has passed.
+        private boolean stopped(int removed, long deadlineNanos) {
+            if (result.isDone()) {
+                // Cancelled.
+                progress.close();
+                return true;
+            }
+            if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos > 0) {
+                fail(new TimeoutException("Deadline passed after " + removed + " seams"));
+                return true;
+            }
+            return false;
+        }
+
+        private void fail(Throwable e) {
+            result.completeExceptionally(e);
+            progress.closeExceptionally(e);
+        }
+    }
+}
@@ -30,6 +30,15 @@ public class DijkstraSeamFinder implements SeamFinder {
     // Since each sub-array represents a column, findHorizontalSeam represents "base" seam
     @Override
     public List<Integer> findHorizontalSeam(double[][] energies) {
+        return findHorizontalSeam(energies, null);
+    }
+
+    /**
+     * Finds a horizontal seam after adding the mask's bias to every energy.
+     * The bias is applied as the graph's edges are generated, so the energies aren't copied.
+     * The mask may be null.
+     */
+    public List<Integer> findHorizontalSeam(double[][] energies, EnergyMask mask) {
 
         int cols = energies.length;
         int rows = energies[0].length;
@@ -40,7 +49,7 @@ public class DijkstraSeamFinder implements SeamFinder {
         Integer start = -1;
         Integer end = rows * cols;
 
-        EnergyGraph energyGraph = new EnergyGraph(cols, rows, energies);
+        EnergyGraph energyGraph = new EnergyGraph(cols, rows, energies, mask);
         ShortestPath<Integer, Edge<Integer>> spt = pathFinder.findShortestPath(energyGraph, start, end);
 
         // Undo the pixel representation for the .to() vertex to get the y-coordinate
@@ -76,16 +85,41 @@ public class DijkstraSeamFinder implements SeamFinder {
         return findHorizontalSeam(transpose);
     }
 
+    /**
+     * Finds a vertical seam after adding the mask's bias to every energy.
+     * The mask may be null.
+     */
+    public List<Integer> findVerticalSeam(double[][] energies, EnergyMask mask) {
+        if (mask == null) {
+            return findVerticalSeam(energies);
+        }
+        return findHorizontalSeam(transpose(energies), mask.transposed());
+    }
+
     private static class EnergyGraph implements Graph<Integer, Edge<Integer>> {
         int width;
         int height;
 
         double[][] energies;
 
-        public EnergyGraph(int width, int height, double[][] energies) {
+        // Optional bias added to every energy. Dijkstra's algorithm needs non-negative weights,
+        // so every biased weight is also shifted up by maskOffset.
+        EnergyMask mask;
+        double maskOffset;
+
+        public EnergyGraph(int width, int height, double[][] energies, EnergyMask mask) {
             this.width = width;
             this.height = height;
             this.energies = energies;
+            this.mask = mask;
+            this.maskOffset = mask == null ? 0 : Math.max(0, -mask.minBias());
+        }
+
+        private double weight(int x, int y) {
+            if (mask == null) {
+                return this.energies[x][y];
+            }
+            return this.energies[x][y] + mask.bias(x, y) + maskOffset;
         }
 
         @Override
@@ -118,21 +152,21 @@ public class DijkstraSeamFinder implements SeamFinder {
                 return edges;
                 // Last column
             } else if (vertex < width * height && vertex > ((width - 1) * height)) {
-                edges.add(new Edge<>(vertex, width * height, this.energies[width - 1][vertex % height]));
+                edges.add(new Edge<>(vertex, width * height, weight(width - 1, vertex % height)));
                 // At the top row, only 2 outgoing edges.
             } else if (vertex % height == 0) {
                 for (int i = 0; i < 2; ++i) {
-                    edges.add(new Edge<>(vertex, vertex + height + i, this.energies[vertex / height][0]));
+                    edges.add(new Edge<>(vertex, vertex + height + i, weight(vertex / height, 0)));
                 }
                 // At the bottom row, only 2 outgoing edges
             } else if ((vertex + 1) % height == 0) {
                 for (int i = -1; i < 1; ++i) {
-                    edges.add(new Edge<>(vertex, vertex + height + i, this.energies[vertex / height][height - 1]));
+                    edges.add(new Edge<>(vertex, vertex + height + i, weight(vertex / height, height - 1)));
                 }
                 // Any other pixel, 3 outgoing edges.
             } else {
                 for (int i = -1; i < 2; ++i) {
-                    edges.add(new Edge<>(vertex, vertex + height + i, this.energies[vertex / height][vertex % height]));
+                    edges.add(new Edge<>(vertex, vertex + height + i, weight(vertex / height, vertex % height)));
                 }
             }
 
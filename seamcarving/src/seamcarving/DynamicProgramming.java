@@ -0,0 +1,126 @@
+package seamcarving;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of the dynamic programming seam finders that don't depend on the precision of the
+ * weights: picking the end of the seam, backtracking from it, and transposing the energies.
+ *
+ * Weights are compared through a {@link CellOrder}, so every finder breaks ties the same way
+ * whatever type it stores its weights in.
+ *
+ * @see DynamicProgrammingSeamFinder
+ * @see FloatDynamicProgrammingSeamFinder
+ * @see FixedPointDynamicProgrammingSeamFinder
+ */
+final class DynamicProgramming {
+    private DynamicProgramming() {
+    }
+
+    /**
+     * Compares the minimum weights of two cells in the same line.
+     */
+    interface CellOrder {
+        /** Returns whether cell a of the line weighs less than cell b. */
+        boolean less(int line, int a, int b);
+    }
+
+    /**
+     * Orders the cells of weights stored one line after another in a flat array, with cell i of
+     * line j at j * span + i. Unlike a lambda, one instance can be reused for every seam, so
+     * backtracking with it doesn't allocate.
+     */
+    static final class FlatOrder implements CellOrder {
+        private double[] weights;
+        private int span;
+
+        FlatOrder of(double[] weights, int span) {
+            this.weights = weights;
+            this.span = span;
+            return this;
+        }
+
+        @Override
+        public boolean less(int line, int a, int b) {
+            return weights[line * span + a] < weights[line * span + b];
+        }
+    }
+
+    /**
+     * Returns the seam ending at the lightest cell of the last line, as a modifiable list.
+     *
+     * @see #backtrack(int, int, CellOrder, int[])
+     */
+    static List<Integer> backtrack(int lines, int span, CellOrder order) {
+        int[] seam = backtrack(lines, span, order, new int[lines]);
+        List<Integer> result = new ArrayList<>(lines);
+        for (int index : seam) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    /**
+     * Stores the seam ending at the lightest cell of the last line in the first lines entries of
+     * seam, and returns seam. The seam moves to the lightest neighbor in each earlier line, and
+     * ties are broken the same way as the original {@link DynamicProgrammingSeamFinder} did.
+     */
+    static int[] backtrack(int lines, int span, CellOrder order, int[] seam) {
+        int last = lines - 1;
+        int minIdx = 0;
+        for (int i = 1; i < span; ++i) {
+            if (order.less(last, i, minIdx)) {
+                minIdx = i;
+            }
+        }
+        seam[last] = minIdx;
+
+        int prevMinIdx = minIdx;
+        for (int j = lines - 2; j >= 0; --j) {
+            if (span == 1) {
+                // The only cell; its neighbors would be in the next line.
+                prevMinIdx = 0;
+            } else if (prevMinIdx == 0) {
+                prevMinIdx = order.less(j, 0, 1) ? 0 : 1;
+            } else if (prevMinIdx == span - 1) {
+                prevMinIdx = order.less(j, span - 1, span - 2) ? span - 1 : span - 2;
+            } else {
+                int prevMinIdx1 = order.less(j, prevMinIdx + 1, prevMinIdx) ? prevMinIdx + 1 : prevMinIdx;
+                prevMinIdx = order.less(j, prevMinIdx1, prevMinIdx - 1) ? prevMinIdx1 : prevMinIdx - 1;
+            }
+            seam[j] = prevMinIdx;
+        }
+        return seam;
+    }
+
+    static double[][] transpose(double[][] matrix) {
+        double[][] transpose = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < transpose.length; ++i) {
+            for (int j = 0; j < matrix.length; ++j) {
+                transpose[i][j] = matrix[j][i];
+            }
+        }
+        return transpose;
+    }
+
+    static float[][] transpose(float[][] matrix) {
+        float[][] transpose = new float[matrix[0].length][matrix.length];
+        for (int i = 0; i < transpose.length; ++i) {
+            for (int j = 0; j < matrix.length; ++j) {
+                transpose[i][j] = matrix[j][i];
+            }
+        }
+        return transpose;
+    }
+
+    static short[][] transpose(short[][] matrix) {
+        short[][] transpose = new short[matrix[0].length][matrix.length];
+        for (int i = 0; i < transpose.length; ++i) {
+            for (int j = 0; j < matrix.length; ++j) {
+                transpose[i][j] = matrix[j][i];
+            }
+        }
+        return transpose;
+    }
+}
@@ -9,8 +9,9 @@ import java.util.List;
  *
  * @see SeamFinder
  * @see SeamCarver
+ * @see FloatDynamicProgrammingSeamFinder
  */
-public class DynamicProgrammingSeamFinder implements SeamFinder {
+public class DynamicProgrammingSeamFinder implements SeamFinder, PrecisionSeamFinder<double[][]> {
     @Override
     public List<Integer> findHorizontalSeam(double[][] energies) {
         //throw new UnsupportedOperationException("Not implemented yet.");
@@ -22,59 +23,243 @@ public class DynamicProgrammingSeamFinder implements SeamFinder {
         // First column of weights is just the energies of the first column
         weights[0] = energies[0];
 
-        List<Integer> seam = new ArrayList<>(rows);
+        return findSeam(energies, weights, null);
+    }
+
+    /**
+     * Finds a horizontal seam after adding the mask's bias to every energy.
+     * The bias is applied while the weights are computed, so the energies aren't copied.
+     * The mask may be null.
+     */
+    public List<Integer> findHorizontalSeam(double[][] energies, EnergyMask mask) {
+        if (mask == null) {
+            return findHorizontalSeam(energies);
+        }
+        int rows = energies[0].length;
+        int cols = energies.length;
+        double[][] weights = new double[cols][rows];
+        for (int i = 0; i < rows; ++i) {
+            weights[0][i] = energies[0][i] + mask.bias(0, i);
+        }
+        return findSeam(energies, weights, mask);
+    }
+
+    /**
+     * Finds a vertical seam after adding the mask's bias to every energy.
+     * The mask may be null.
+     */
+    public List<Integer> findVerticalSeam(double[][] energies, EnergyMask mask) {
+        if (mask == null) {
+            return findVerticalSeam(energies);
+        }
+        return findHorizontalSeam(transpose(energies), mask.transposed());
+    }
+
+    /**
+     * Finds a horizontal seam, reading the energies straight from the source (for example a
+     * {@link MappedEnergyGrid}) instead of from a copy in a {@code double[][]}.
+     */
+    public List<Integer> findHorizontalSeam(EnergySource source) {
+        double[][] weights = new double[source.width()][source.height()];
+        for (int j = 0; j < weights.length; ++j) {
+            source.readColumn(j, weights[j]);
+        }
+        // The weights start out as the energies and are accumulated in place.
+        return findSeam(weights, weights, null);
+    }
+
+    /**
+     * Finds a vertical seam, reading the energies straight from the source one row at a time.
+     * Unlike {@link #findVerticalSeam(double[][])}, no transposed copy of the energies is made.
+     */
+    public List<Integer> findVerticalSeam(EnergySource source) {
+        double[][] weights = new double[source.height()][source.width()];
+        for (int j = 0; j < weights.length; ++j) {
+            source.readRow(j, weights[j]);
+        }
+        return findSeam(weights, weights, null);
+    }
+
+    // Computes the minimum weights of every column and backtracks to find the seam.
+    // The first column of weights must already be filled in. Columns of weights may
+    // alias the corresponding columns of energies, in which case they are updated in place.
+    // If mask isn't null, its bias is added to every energy.
+    private static List<Integer> findSeam(double[][] energies, double[][] weights, EnergyMask mask) {
+        int rows = energies[0].length;
+        int cols = energies.length;
 
         // First, iterate over the energies array and calculate the minimum weights of a column based
         // on the energies of the previous adjacent energies.
         for (int j = 1; j < cols; ++j) {
             for (int i = 0; i < rows; ++i) {
-                // Top edge case
-                if (i == 0) {
+                double energy = energies[j][i];
+                if (mask != null) {
+                    energy += mask.bias(j, i);
+                }
+                if (rows == 1) {
+                    // A single row has no neighbors above or below.
+                    weights[j][i] = weights[j - 1][i] + energy;
+                    // Top edge case
+                } else if (i == 0) {
                     // Find the minimum adjacent previous weight and add it to the corresponding energy.
-                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i + 1]) + energies[j][i];
+                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i + 1]) + energy;
                     // Bottom edge
                 } else if (i == rows - 1) {
                     // Find the minimum adjacent previous weight and add it to the corresponding energy.
-                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i - 1]) + energies[j][i];
+                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i - 1]) + energy;
                 } else {
                     // Find the minimum adjacent previous weight and add it to the corresponding energy.
                     // There are three adjacent weights instead of two.
                     weights[j][i] = Math.min(weights[j - 1][i - 1],
-                        Math.min(weights[j - 1][i], weights[j - 1][i + 1])) + energies[j][i];
+                        Math.min(weights[j - 1][i], weights[j - 1][i + 1])) + energy;
                 }
             }
         }
 
-        // Next, find the corresponding index of the minimum weight in the last column.
-        // This determines the endpoint of the seam.
-        double minWeight = weights[cols - 1][0];
-        int minIdx = 0;
-        // Start at the right most column
-        for (int i = 1; i < rows; ++i) {
-            if (weights[cols - 1][i] < minWeight) {
-                minWeight = weights[cols - 1][i];
+        // Then find the lightest cell of the last column, and backtrack from it to the first.
+        return DynamicProgramming.backtrack(cols, rows, (j, a, b) -> weights[j][a] < weights[j][b]);
+    }
+
+    /**
+     * Finds a horizontal seam without allocating, using the context's buffers for the weights
+     * and for the result. The same seam as {@link #findHorizontalSeam(double[][])} is found.
+     * It isn't an overload of findHorizontalSeam, so that a null mask in
+     * {@code findHorizontalSeam(energies, null)} isn't ambiguous.
+     *
+     * @return the row of the seam in every column, in the first energies.length entries (see
+     *         {@link SeamFinderContext#horizontalSeamLength()}). The array belongs to the context,
+     *         may be longer than the seam, and is overwritten by the next seam of the same
+     *         orientation found with the same context.
+     */
+    public int[] findHorizontalSeamInto(double[][] energies, SeamFinderContext context) {
+        return findSeam(energies, false, context);
+    }
+
+    /**
+     * Finds a vertical seam without allocating. The energies are read row by row
+     * instead of being transposed.
+     *
+     * @return the column of the seam in every row, in the first energies[0].length entries (see
+     *         {@link SeamFinderContext#verticalSeamLength()}). The array belongs to the context,
+     *         may be longer than the seam, and is overwritten by the next seam of the same
+     *         orientation found with the same context.
+     */
+    public int[] findVerticalSeamInto(double[][] energies, SeamFinderContext context) {
+        return findSeam(energies, true, context);
+    }
+
+    // Same algorithm as findSeam(double[][], double[][], EnergyMask), but with flat weights
+    // from the context. Line j is a column for horizontal seams and a row for vertical seams,
+    // and the weight of cell i of line j is stored at j * span + i.
+    private static int[] findSeam(double[][] energies, boolean vertical, SeamFinderContext context) {
+        int lines = vertical ? energies[0].length : energies.length;
+        int span = vertical ? energies.length : energies[0].length;
+        double[] weights = context.weights(lines * span);
+
+        for (int i = 0; i < span; ++i) {
+            weights[i] = vertical ? energies[i][0] : energies[0][i];
+        }
+        for (int j = 1; j < lines; ++j) {
+            int prev = (j - 1) * span;
+            int base = j * span;
+            for (int i = 0; i < span; ++i) {
+                double min = weights[prev + i];
+                if (i > 0) {
+                    min = Math.min(min, weights[prev + i - 1]);
+                }
+                if (i < span - 1) {
+                    min = Math.min(min, weights[prev + i + 1]);
+                }
+                weights[base + i] = min + (vertical ? energies[i][j] : energies[j][i]);
+            }
+        }
+
+        return DynamicProgramming.backtrack(lines, span, context.order(weights, span), context.seam(lines, vertical));
+    }
+
+    /**
+     * Finds a horizontal seam that is restricted to a band of rows in every column.
+     * Only the cells with {@code lo[x] <= y <= hi[x]} are considered, so the cost is proportional
+     * to the total band size rather than to the size of the whole image.
+     *
+     * @param energies the energies of the image, indexed by column and then row
+     * @param lo the lowest row (inclusive) the seam may use in each column
+     * @param hi the highest row (inclusive) the seam may use in each column
+     * @throws IllegalArgumentException if the bounds don't match the image, or if no seam fits in the band
+     */
+    public List<Integer> findHorizontalSeam(double[][] energies, int[] lo, int[] hi) {
+        return findHorizontalSeam(energies, lo, hi, null);
+    }
+
+    /**
+     * Finds a horizontal seam that is restricted to a band of rows in every column, after adding
+     * the mask's bias to every energy. The mask may be null.
+     *
+     * @see #findHorizontalSeam(double[][], int[], int[])
+     */
+    public List<Integer> findHorizontalSeam(double[][] energies, int[] lo, int[] hi, EnergyMask mask) {
+        int rows = energies[0].length;
+        int cols = energies.length;
+        if (lo.length != cols || hi.length != cols) {
+            throw new IllegalArgumentException("Expected one bound per column");
+        }
+
+        // Each column only stores the weights inside its band.
+        // weights[j][k] is the minimum weight of the cell at row lo[j] + k.
+        double[][] weights = new double[cols][];
+        for (int j = 0; j < cols; ++j) {
+            if (lo[j] < 0 || hi[j] >= rows || lo[j] > hi[j]) {
+                throw new IllegalArgumentException("Invalid band for column " + j);
+            }
+            weights[j] = new double[hi[j] - lo[j] + 1];
+        }
+
+        for (int i = lo[0]; i <= hi[0]; ++i) {
+            weights[0][i - lo[0]] = energies[0][i] + (mask == null ? 0 : mask.bias(0, i));
+        }
+
+        // Same recurrence as the unrestricted version, except that neighbors outside of
+        // the previous column's band are treated as unreachable.
+        for (int j = 1; j < cols; ++j) {
+            for (int i = lo[j]; i <= hi[j]; ++i) {
+                double min = Double.POSITIVE_INFINITY;
+                int from = Math.max(i - 1, lo[j - 1]);
+                int to = Math.min(i + 1, hi[j - 1]);
+                for (int k = from; k <= to; ++k) {
+                    min = Math.min(min, weights[j - 1][k - lo[j - 1]]);
+                }
+                weights[j][i - lo[j]] = min + energies[j][i] + (mask == null ? 0 : mask.bias(j, i));
+            }
+        }
+
+        // Find the endpoint of the seam in the last column's band.
+        double minWeight = Double.POSITIVE_INFINITY;
+        int minIdx = -1;
+        for (int i = lo[cols - 1]; i <= hi[cols - 1]; ++i) {
+            if (weights[cols - 1][i - lo[cols - 1]] < minWeight) {
+                minWeight = weights[cols - 1][i - lo[cols - 1]];
                 minIdx = i;
             }
         }
+        if (minIdx < 0) {
+            throw new IllegalArgumentException("Bands of adjacent columns don't overlap");
+        }
+
+        List<Integer> seam = new ArrayList<>(cols);
         seam.add(minIdx);
 
+        // Backtrack, only looking at neighbors inside the previous column's band.
         int prevMinIdx = minIdx;
-        // Now the last index with the minimum weight has been found.
-        // Backtrack starting at this index, finding the minimum adjacent weight in the previous column
         for (int j = cols - 2; j >= 0; --j) {
-            // If the min index is on the top row, two possible adjacent weights
-            if (prevMinIdx == 0) {
-                // Row of minimum adjacent weight is either 0 or 1.
-                prevMinIdx = weights[j][0] < weights[j][1] ? 0 : 1;
-            } else if (prevMinIdx == rows - 1) {
-                // Row of minimum adjacent weight is either the last row or second to last row.
-                prevMinIdx = weights[j][rows - 1] < weights[j][rows - 2] ? rows - 1 : rows - 2;
-            } else {
-                // Temp variable, determines the minimum of y and y + 1 previous element
-                int prevMinIdx1 = weights[j][prevMinIdx + 1] < weights[j][prevMinIdx] ? prevMinIdx + 1 : prevMinIdx;
-                // Then find the actual minimum from prevMinIdx and the y - 1 element.
-                prevMinIdx = weights[j][prevMinIdx1] < weights[j][prevMinIdx - 1] ? prevMinIdx1 : prevMinIdx - 1;
+            int from = Math.max(prevMinIdx - 1, lo[j]);
+            int to = Math.min(prevMinIdx + 1, hi[j]);
+            int bestIdx = from;
+            for (int k = from + 1; k <= to; ++k) {
+                if (weights[j][k - lo[j]] < weights[j][bestIdx - lo[j]]) {
+                    bestIdx = k;
+                }
             }
+            prevMinIdx = bestIdx;
             seam.add(prevMinIdx);
         }
 
@@ -85,17 +270,7 @@ public class DynamicProgrammingSeamFinder implements SeamFinder {
     // Helper function for findVerticalSeam()
     // Used so findHorizontalSeam() can be implemented on the vertical seam.
     public double[][] transpose(double[][] matrix) {
-        int cols = matrix.length;
-        int rows = matrix[0].length;
-
-        double[][] transpose = new double[rows][cols];
-
-        for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                transpose[i][j] = matrix[j][i];
-            }
-        }
-        return transpose;
+        return DynamicProgramming.transpose(matrix);
     }
 
     // Simply transpose and find horizontalSeam.
@@ -0,0 +1,38 @@
+package seamcarving;
+
+/**
+ * An {@link EnergySource} that also supports random access to single energies.
+ *
+ * Implementations may be backed by memory that isn't on the Java heap (such as a memory-mapped
+ * file), so seam finders can read the energies without copying them into a {@code double[][]}.
+ *
+ * @see EnergySource
+ * @see MappedEnergyGrid
+ */
+public interface EnergyGrid extends EnergySource {
+    /** Returns the energy of the pixel at column x and row y. */
+    double energy(int x, int y);
+
+    @Override
+    default void readColumn(int x, double[] dest) {
+        int height = height();
+        for (int y = 0; y < height; ++y) {
+            dest[y] = energy(x, y);
+        }
+    }
+
+    @Override
+    default void readColumn(int x, int y, int length, double[] dest, int offset) {
+        for (int i = 0; i < length; ++i) {
+            dest[offset + i] = energy(x, y + i);
+        }
+    }
+
+    @Override
+    default void readRow(int y, double[] dest) {
+        int width = width();
+        for (int x = 0; x < width; ++x) {
+            dest[x] = energy(x, y);
+        }
+    }
+}
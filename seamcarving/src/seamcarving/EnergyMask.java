@@ -0,0 +1,46 @@
+package seamcarving;
+
+/**
+ * A bias that seam finders add to energies on the fly, for example to protect a face from being
+ * carved or to force a logo to be removed.
+ *
+ * Masks are applied while the seam is searched for, so the energy matrix is never copied, and
+ * implementations are immutable so one mask can be shared by many requests at once.
+ *
+ * @see BitEnergyMask
+ * @see RunLengthEnergyMask
+ */
+public interface EnergyMask {
+    /** Returns the bias added to the energy of the pixel at column x and row y. */
+    double bias(int x, int y);
+
+    /**
+     * Returns a lower bound on every bias of this mask. Finders that need non-negative weights,
+     * like {@link DijkstraSeamFinder}, shift all weights up by this amount. Every seam goes through
+     * the same number of pixels, so the shift doesn't change which seam is cheapest.
+     */
+    double minBias();
+
+    /**
+     * Returns a view of this mask with rows and columns swapped, for use with transposed energies.
+     */
+    default EnergyMask transposed() {
+        EnergyMask mask = this;
+        return new EnergyMask() {
+            @Override
+            public double bias(int x, int y) {
+                return mask.bias(y, x);
+            }
+
+            @Override
+            public double minBias() {
+                return mask.minBias();
+            }
+
+            @Override
+            public EnergyMask transposed() {
+                return mask;
+            }
+        };
+    }
+}
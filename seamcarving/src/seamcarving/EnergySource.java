@@ -0,0 +1,38 @@
+package seamcarving;
+
+/**
+ * A read-only source of energies that can be read one column or one row at a time.
+ *
+ * Unlike a {@code double[][]}, a source doesn't have to keep the whole image in memory, so it
+ * can be used by finders that only look at a few columns at once.
+ *
+ * @see StreamingSeamFinder
+ */
+public interface EnergySource {
+    /** Returns the number of columns in the image. */
+    int width();
+
+    /** Returns the number of rows in the image. */
+    int height();
+
+    /**
+     * Copies the energies of column x into dest, which must have a length of at least height().
+     */
+    void readColumn(int x, double[] dest);
+
+    /**
+     * Copies the energies of rows y to y + length - 1 of column x into dest, starting at offset.
+     * The default implementation reads the whole column, so sources that can read part of a
+     * column directly should override it.
+     */
+    default void readColumn(int x, int y, int length, double[] dest, int offset) {
+        double[] column = new double[height()];
+        readColumn(x, column);
+        System.arraycopy(column, y, dest, offset, length);
+    }
+
+    /**
+     * Copies the energies of row y into dest, which must have a length of at least width().
+     */
+    void readRow(int y, double[] dest);
+}
@@ -0,0 +1,80 @@
+package seamcarving;
+
+import java.util.List;
+
+/**
+ * Fixed-point version of {@link DynamicProgrammingSeamFinder}.
+ *
+ * Energies are non-negative shorts, usually made with {@link #quantize(double[][], double)}, and
+ * weights are ints. Weights saturate at Integer.MAX_VALUE instead of overflowing, so very long
+ * seams through very high energies all compare as equally expensive rather than wrapping around.
+ *
+ * @see PrecisionSeamFinder
+ * @see DynamicProgrammingSeamFinder
+ */
+public class FixedPointDynamicProgrammingSeamFinder implements PrecisionSeamFinder<short[][]> {
+    /**
+     * Returns round(energy * scale) for every energy, clamped to [0, Short.MAX_VALUE].
+     * The scale should be chosen so the largest expected energy maps close to Short.MAX_VALUE.
+     */
+    public static short[][] quantize(double[][] energies, double scale) {
+        short[][] result = new short[energies.length][energies[0].length];
+        for (int j = 0; j < energies.length; ++j) {
+            for (int i = 0; i < energies[j].length; ++i) {
+                long value = Math.round(energies[j][i] * scale);
+                result[j][i] = (short) Math.max(0, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException if any energy is negative
+     */
+    @Override
+    public List<Integer> findHorizontalSeam(short[][] energies) {
+        int rows = energies[0].length;
+        int cols = energies.length;
+        int[][] weights = new int[cols][rows];
+        for (int i = 0; i < rows; ++i) {
+            weights[0][i] = checkEnergy(energies[0][i]);
+        }
+
+        // Same recurrence as DynamicProgrammingSeamFinder, with saturating addition.
+        for (int j = 1; j < cols; ++j) {
+            for (int i = 0; i < rows; ++i) {
+                int min;
+                if (rows == 1) {
+                    min = weights[j - 1][i];
+                } else if (i == 0) {
+                    min = Math.min(weights[j - 1][i], weights[j - 1][i + 1]);
+                } else if (i == rows - 1) {
+                    min = Math.min(weights[j - 1][i], weights[j - 1][i - 1]);
+                } else {
+                    min = Math.min(weights[j - 1][i - 1], Math.min(weights[j - 1][i], weights[j - 1][i + 1]));
+                }
+                int sum = min + checkEnergy(energies[j][i]);
+                // Both terms are non-negative, so a negative sum means the addition overflowed.
+                weights[j][i] = sum < 0 ? Integer.MAX_VALUE : sum;
+            }
+        }
+
+        return DynamicProgramming.backtrack(cols, rows, (j, a, b) -> weights[j][a] < weights[j][b]);
+    }
+
+    private static int checkEnergy(short energy) {
+        if (energy < 0) {
+            throw new IllegalArgumentException("Fixed-point energies must not be negative");
+        }
+        return energy;
+    }
+
+    public short[][] transpose(short[][] matrix) {
+        return DynamicProgramming.transpose(matrix);
+    }
+
+    @Override
+    public List<Integer> findVerticalSeam(short[][] energies) {
+        return findHorizontalSeam(transpose(energies));
+    }
+}
@@ -0,0 +1,64 @@
+package seamcarving;
+
+import java.util.List;
+
+/**
+ * Single-precision version of {@link DynamicProgrammingSeamFinder}.
+ *
+ * Energies and weights are floats, which halves the memory the dynamic program reads and writes.
+ * The seams found are the same as the double-precision ones except where rounding changes which
+ * of two nearly equal weights is smaller.
+ *
+ * @see PrecisionSeamFinder
+ * @see DynamicProgrammingSeamFinder
+ */
+public class FloatDynamicProgrammingSeamFinder implements PrecisionSeamFinder<float[][]> {
+    /**
+     * Returns a single-precision copy of the energies.
+     */
+    public static float[][] toFloat(double[][] energies) {
+        float[][] result = new float[energies.length][energies[0].length];
+        for (int j = 0; j < energies.length; ++j) {
+            for (int i = 0; i < energies[j].length; ++i) {
+                result[j][i] = (float) energies[j][i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Integer> findHorizontalSeam(float[][] energies) {
+        int rows = energies[0].length;
+        int cols = energies.length;
+        float[][] weights = new float[cols][rows];
+        // First column of weights is just the energies of the first column
+        weights[0] = energies[0];
+
+        // Same recurrence as DynamicProgrammingSeamFinder, on floats.
+        for (int j = 1; j < cols; ++j) {
+            for (int i = 0; i < rows; ++i) {
+                if (rows == 1) {
+                    weights[j][i] = weights[j - 1][i] + energies[j][i];
+                } else if (i == 0) {
+                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i + 1]) + energies[j][i];
+                } else if (i == rows - 1) {
+                    weights[j][i] = Math.min(weights[j - 1][i], weights[j - 1][i - 1]) + energies[j][i];
+                } else {
+                    weights[j][i] = Math.min(weights[j - 1][i - 1],
+                        Math.min(weights[j - 1][i], weights[j - 1][i + 1])) + energies[j][i];
+                }
+            }
+        }
+
+        return DynamicProgramming.backtrack(cols, rows, (j, a, b) -> weights[j][a] < weights[j][b]);
+    }
+
+    public float[][] transpose(float[][] matrix) {
+        return DynamicProgramming.transpose(matrix);
+    }
+
+    @Override
+    public List<Integer> findVerticalSeam(float[][] energies) {
+        return findHorizontalSeam(transpose(energies));
+    }
+}
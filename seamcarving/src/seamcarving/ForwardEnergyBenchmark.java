@@ -0,0 +1,64 @@
+package seamcarving;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the time per seam of {@link ForwardEnergySeamFinder} with that of
+ * {@link DynamicProgrammingSeamFinder} on a random image.
+ *
+ * <pre>
+ * java seamcarving.ForwardEnergyBenchmark [width] [height] [iterations]
+ * </pre>
+ *
+ * Defaults to 2000x2000 and 20 timed iterations, after as many warm-up iterations.
+ * The backward-energy time doesn't include computing the energies.
+ */
+public class ForwardEnergyBenchmark {
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        Random random = new Random(373);
+        int[][] pixels = new int[width][height];
+        double[][] energies = new double[width][height];
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                pixels[x][y] = random.nextInt(0x1000000);
+                energies[x][y] = random.nextDouble() * 255;
+            }
+        }
+
+        ForwardEnergySeamFinder forward = new ForwardEnergySeamFinder();
+        DynamicProgrammingSeamFinder backward = new DynamicProgrammingSeamFinder();
+        for (boolean vertical : new boolean[]{false, true}) {
+            // Warm up, then time.
+            run(forward, backward, pixels, energies, vertical, iterations);
+            double[] millis = run(forward, backward, pixels, energies, vertical, iterations);
+            System.out.printf(Locale.ROOT, "%-10s forward %8.2f ms/seam  backward %8.2f ms/seam  ratio %.2f%n",
+                vertical ? "vertical" : "horizontal", millis[0], millis[1], millis[0] / millis[1]);
+        }
+    }
+
+    // Returns the mean time per seam of the forward and the backward finder, in milliseconds.
+    private static double[] run(ForwardEnergySeamFinder forward, DynamicProgrammingSeamFinder backward,
+                                int[][] pixels, double[][] energies, boolean vertical, int iterations) {
+        long forwardNanos = 0;
+        long backwardNanos = 0;
+        long checksum = 0;
+        for (int i = 0; i < iterations; ++i) {
+            long start = System.nanoTime();
+            checksum += vertical ? forward.findVerticalSeam(pixels).get(0) : forward.findHorizontalSeam(pixels).get(0);
+            long middle = System.nanoTime();
+            checksum += vertical ? backward.findVerticalSeam(energies).get(0) : backward.findHorizontalSeam(energies).get(0);
+            forwardNanos += middle - start;
+            backwardNanos += System.nanoTime() - middle;
+        }
+        if (checksum == Long.MIN_VALUE) {
+            // Keeps the JIT from discarding the seams.
+            System.out.println(checksum);
+        }
+        return new double[]{forwardNanos / 1e6 / iterations, backwardNanos / 1e6 / iterations};
+    }
+}
@@ -0,0 +1,166 @@
+package seamcarving;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dynamic programming seam finder that uses forward energy instead of precomputed energies.
+ *
+ * Forward energy is the cost of the new edges a removal creates: removing a pixel makes its two
+ * neighbors in the same line adjacent, and moving diagonally also makes the pixel in the
+ * previous line adjacent to one of them. These costs are computed from pixel intensities inside
+ * the dynamic programming loop, so no separate energy pass over the image is needed. Only two
+ * lines of intensities and weights are kept, plus one byte of backpointer per pixel.
+ *
+ * Images are indexed by column and then row, and pixels are packed RGB ints.
+ *
+ * @see DynamicProgrammingSeamFinder
+ */
+public class ForwardEnergySeamFinder {
+    /**
+     * Finds the horizontal seam with the lowest forward energy.
+     */
+    public List<Integer> findHorizontalSeam(int[][] pixels) {
+        return findSeam(pixels, false);
+    }
+
+    /**
+     * Finds the vertical seam with the lowest forward energy.
+     * The pixels are read row by row, so nothing is transposed.
+     */
+    public List<Integer> findVerticalSeam(int[][] pixels) {
+        return findSeam(pixels, true);
+    }
+
+    // A horizontal seam has one cell per column (line), a vertical seam has one cell per row.
+    private static List<Integer> findSeam(int[][] pixels, boolean vertical) {
+        int lines = vertical ? pixels[0].length : pixels.length;
+        int span = vertical ? pixels.length : pixels[0].length;
+
+        // Intensities are luma scaled by 1000, which makes them exact integers, so all the costs
+        // are integer arithmetic and weights can't lose precision.
+        int[] prevIntensities = new int[span];
+        int[] intensities = new int[span];
+        long[] prevWeights = new long[span];
+        long[] weights = new long[span];
+        // backpointers[line * span + i] is the offset (-1, 0 or +1) to the previous cell of the seam.
+        byte[] backpointers = new byte[lines * span];
+
+        readIntensities(pixels, vertical, 0, intensities);
+        for (int i = 0; i < span; ++i) {
+            prevWeights[i] = upCost(intensities, i, span);
+        }
+
+        for (int line = 1; line < lines; ++line) {
+            int[] temp = prevIntensities;
+            prevIntensities = intensities;
+            intensities = temp;
+            readIntensities(pixels, vertical, line, intensities);
+
+            int base = line * span;
+            // The first and last cells have a missing neighbor, so they take the general path,
+            // and the loop over the interior cells needs no bounds checks of its own.
+            relaxCell(prevIntensities, intensities, prevWeights, weights, backpointers, base, 0, span);
+            for (int i = 1; i < span - 1; ++i) {
+                int left = intensities[i - 1];
+                int right = intensities[i + 1];
+                int previous = prevIntensities[i];
+                // Removing this cell joins the cells before and after it in this line.
+                int up = Math.abs(right - left);
+
+                long straight = prevWeights[i] + up;
+                // Coming from the cell before also joins it to the cell before this one.
+                long fromBefore = prevWeights[i - 1] + up + Math.abs(previous - left);
+                // Coming from the cell after also joins it to the cell after this one.
+                long fromAfter = prevWeights[i + 1] + up + Math.abs(previous - right);
+
+                // The cheapest of the three is picked with sign masks instead of branches. On real
+                // images the winner is close to random, so branches would mostly be mispredicted.
+                // A mask is -1 if its candidate is strictly cheaper, so ties go to the straight path.
+                long beforeMask = (fromBefore - straight) >> 63;
+                long min = straight + ((fromBefore - straight) & beforeMask);
+                long afterMask = (fromAfter - min) >> 63;
+                weights[i] = min + ((fromAfter - min) & afterMask);
+                backpointers[base + i] = (byte) ((afterMask & 1) | (~afterMask & beforeMask));
+            }
+            if (span > 1) {
+                relaxCell(prevIntensities, intensities, prevWeights, weights, backpointers, base, span - 1, span);
+            }
+
+            long[] tempWeights = prevWeights;
+            prevWeights = weights;
+            weights = tempWeights;
+        }
+
+        int minIdx = 0;
+        for (int i = 1; i < span; ++i) {
+            if (prevWeights[i] < prevWeights[minIdx]) {
+                minIdx = i;
+            }
+        }
+
+        int[] seam = new int[lines];
+        seam[lines - 1] = minIdx;
+        for (int line = lines - 1; line > 0; --line) {
+            minIdx += backpointers[line * span + minIdx];
+            seam[line - 1] = minIdx;
+        }
+
+        List<Integer> result = new ArrayList<>(lines);
+        for (int idx : seam) {
+            result.add(idx);
+        }
+        return result;
+    }
+
+    // Computes the weight of cell i of a line, for any cell. Neighbors past the edge are clamped.
+    private static void relaxCell(int[] prevIntensities, int[] intensities, long[] prevWeights,
+                                  long[] weights, byte[] backpointers, int base, int i, int span) {
+        int before = Math.max(i - 1, 0);
+        int after = Math.min(i + 1, span - 1);
+        int up = upCost(intensities, i, span);
+
+        long min = prevWeights[i] + up;
+        byte offset = 0;
+        if (i > 0) {
+            long cost = prevWeights[i - 1] + up + Math.abs(prevIntensities[i] - intensities[before]);
+            if (cost < min) {
+                min = cost;
+                offset = -1;
+            }
+        }
+        if (i < span - 1) {
+            long cost = prevWeights[i + 1] + up + Math.abs(prevIntensities[i] - intensities[after]);
+            if (cost < min) {
+                min = cost;
+                offset = 1;
+            }
+        }
+        weights[i] = min;
+        backpointers[base + i] = offset;
+    }
+
+    // Cost of joining the neighbors of cell i in the same line. Neighbors past the edge are clamped.
+    private static int upCost(int[] intensities, int i, int span) {
+        return Math.abs(intensities[Math.min(i + 1, span - 1)] - intensities[Math.max(i - 1, 0)]);
+    }
+
+    // Reads the luma of every pixel in the given column (or row, for vertical seams).
+    private static void readIntensities(int[][] pixels, boolean vertical, int line, int[] dest) {
+        if (vertical) {
+            for (int x = 0; x < dest.length; ++x) {
+                dest[x] = intensity(pixels[x][line]);
+            }
+        } else {
+            int[] column = pixels[line];
+            for (int y = 0; y < dest.length; ++y) {
+                dest[y] = intensity(column[y]);
+            }
+        }
+    }
+
+    // Luma (0.299 R + 0.587 G + 0.114 B) times 1000.
+    private static int intensity(int rgb) {
+        return 299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF);
+    }
+}
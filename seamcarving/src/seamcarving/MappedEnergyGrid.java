@@ -0,0 +1,127 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link EnergyGrid} backed by a memory-mapped file, so energies written by another process can be
+ * carved without being copied onto the heap. Images larger than the heap can be carved too.
+ *
+ * Energies may be stored as doubles or as floats; see {@link RawGridFormat} for the file layout.
+ *
+ * @see EnergyGrid
+ * @see StreamingSeamFinder
+ */
+public class MappedEnergyGrid implements EnergyGrid {
+    private final int width;
+    private final int height;
+    private final boolean singlePrecision;
+    private final MappedRegions columns;
+
+    private MappedEnergyGrid(RawGridFormat.Header header, MappedRegions columns) {
+        this.width = header.width;
+        this.height = header.height;
+        this.singlePrecision = header.type == RawGridFormat.FLOAT32;
+        this.columns = columns;
+    }
+
+    /**
+     * Maps the given energy file. The file can be closed by the OS once the grid is unreachable.
+     */
+    public static MappedEnergyGrid open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RawGridFormat.Header header = RawGridFormat.readHeader(channel, file);
+            if (header.type == RawGridFormat.INT32) {
+                throw new IOException("Not an energy file: " + file);
+            }
+            return new MappedEnergyGrid(header, RawGridFormat.mapColumns(channel, header));
+        }
+    }
+
+    /**
+     * Writes the energies to a file of doubles in the format read by {@link #open(Path)}.
+     */
+    public static void write(Path file, double[][] energies) throws IOException {
+        write(file, energies, RawGridFormat.FLOAT64);
+    }
+
+    /**
+     * Writes the energies to a file of floats in the format read by {@link #open(Path)}.
+     * The file is half the size, at the cost of precision.
+     */
+    public static void writeSinglePrecision(Path file, double[][] energies) throws IOException {
+        write(file, energies, RawGridFormat.FLOAT32);
+    }
+
+    private static void write(Path file, double[][] energies, int type) throws IOException {
+        RawGridFormat.Header header = new RawGridFormat.Header(energies.length, energies[0].length, type);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            RawGridFormat.writeHeader(channel, header);
+
+            ByteBuffer column = RawGridFormat.allocateColumn(header);
+            for (double[] energy : energies) {
+                column.clear();
+                if (type == RawGridFormat.FLOAT32) {
+                    FloatBuffer floats = column.asFloatBuffer();
+                    for (double e : energy) {
+                        floats.put((float) e);
+                    }
+                } else {
+                    column.asDoubleBuffer().put(energy);
+                }
+                RawGridFormat.writeFully(channel, column);
+            }
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public double energy(int x, int y) {
+        long index = (long) x * height + y;
+        return singlePrecision
+            ? columns.getFloat(index * Float.BYTES)
+            : columns.getDouble(index * Double.BYTES);
+    }
+
+    @Override
+    public void readColumn(int x, double[] dest) {
+        // Columns are contiguous in the file, so they can be read in bulk.
+        if (singlePrecision) {
+            FloatBuffer floats = columns.at((long) x * height * Float.BYTES).asFloatBuffer();
+            for (int y = 0; y < height; ++y) {
+                dest[y] = floats.get();
+            }
+        } else {
+            DoubleBuffer doubles = columns.at((long) x * height * Double.BYTES).asDoubleBuffer();
+            doubles.get(dest, 0, height);
+        }
+    }
+
+    @Override
+    public void readColumn(int x, int y, int length, double[] dest, int offset) {
+        long index = (long) x * height + y;
+        if (singlePrecision) {
+            FloatBuffer floats = columns.at(index * Float.BYTES).asFloatBuffer();
+            for (int i = 0; i < length; ++i) {
+                dest[offset + i] = floats.get();
+            }
+        } else {
+            columns.at(index * Double.BYTES).asDoubleBuffer().get(dest, offset, length);
+        }
+    }
+}
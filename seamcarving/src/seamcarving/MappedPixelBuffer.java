@@ -0,0 +1,80 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only image whose packed RGB pixels live in a memory-mapped file instead of on the heap.
+ *
+ * Pixels use the same layout as {@link MappedEnergyGrid} (see {@link RawGridFormat}), with one
+ * little-endian int per pixel, so a decoder in another process can hand images to the carver
+ * without any copies.
+ *
+ * @see MappedEnergyGrid
+ */
+public class MappedPixelBuffer {
+    private final int width;
+    private final int height;
+    private final MappedRegions columns;
+
+    private MappedPixelBuffer(RawGridFormat.Header header, MappedRegions columns) {
+        this.width = header.width;
+        this.height = header.height;
+        this.columns = columns;
+    }
+
+    /**
+     * Maps the given pixel file. The file can be closed by the OS once the buffer is unreachable.
+     */
+    public static MappedPixelBuffer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RawGridFormat.Header header = RawGridFormat.readHeader(channel, file);
+            if (header.type != RawGridFormat.INT32) {
+                throw new IOException("Not a pixel file: " + file);
+            }
+            return new MappedPixelBuffer(header, RawGridFormat.mapColumns(channel, header));
+        }
+    }
+
+    /**
+     * Writes the pixels, indexed by column and then row, in the format read by {@link #open(Path)}.
+     */
+    public static void write(Path file, int[][] pixels) throws IOException {
+        RawGridFormat.Header header = new RawGridFormat.Header(pixels.length, pixels[0].length,
+            RawGridFormat.INT32);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            RawGridFormat.writeHeader(channel, header);
+
+            ByteBuffer column = RawGridFormat.allocateColumn(header);
+            for (int[] pixel : pixels) {
+                column.clear();
+                column.asIntBuffer().put(pixel);
+                RawGridFormat.writeFully(channel, column);
+            }
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Returns the packed RGB value of the pixel at column x and row y. */
+    public int get(int x, int y) {
+        return columns.getInt(((long) x * height + y) * Integer.BYTES);
+    }
+
+    /**
+     * Copies the pixels of column x into dest, which must have a length of at least height().
+     */
+    public void readColumn(int x, int[] dest) {
+        columns.at((long) x * height * Integer.BYTES).asIntBuffer().get(dest, 0, height);
+    }
+}
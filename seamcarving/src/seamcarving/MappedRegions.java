@@ -0,0 +1,68 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory mapping of a (possibly larger than 2GB) part of a file that is made of fixed-size lines.
+ *
+ * A single MappedByteBuffer can only address Integer.MAX_VALUE bytes, so the file is mapped as
+ * several regions. Each region holds a whole number of lines, so a line never spans two regions
+ * and can always be read or written with a single bulk operation.
+ * All buffers use little-endian byte order.
+ */
+final class MappedRegions {
+    private final MappedByteBuffer[] regions;
+    private final long regionSize;
+
+    MappedRegions(FileChannel channel, FileChannel.MapMode mode, long offset, long lineCount, long lineBytes)
+        throws IOException {
+        if (lineBytes <= 0 || lineBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid line size: " + lineBytes);
+        }
+        long linesPerRegion = Math.max(1, Math.min(lineCount, Integer.MAX_VALUE / lineBytes));
+        this.regionSize = linesPerRegion * lineBytes;
+
+        int regionCount = (int) ((lineCount + linesPerRegion - 1) / linesPerRegion);
+        this.regions = new MappedByteBuffer[regionCount];
+        long length = lineCount * lineBytes;
+        for (int r = 0; r < regionCount; ++r) {
+            long start = r * regionSize;
+            long size = Math.min(regionSize, length - start);
+            regions[r] = channel.map(mode, offset + start, size);
+            regions[r].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // Returns a buffer positioned at the given byte of the mapping.
+    // The buffer is a duplicate, so callers can't disturb each other's positions.
+    ByteBuffer at(long position) {
+        ByteBuffer region = regions[(int) (position / regionSize)].duplicate();
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        region.position((int) (position % regionSize));
+        return region;
+    }
+
+    int getInt(long position) {
+        return regions[(int) (position / regionSize)].getInt((int) (position % regionSize));
+    }
+
+    float getFloat(long position) {
+        return regions[(int) (position / regionSize)].getFloat((int) (position % regionSize));
+    }
+
+    double getDouble(long position) {
+        return regions[(int) (position / regionSize)].getDouble((int) (position % regionSize));
+    }
+
+    void get(long position, byte[] dest) {
+        at(position).get(dest);
+    }
+
+    void put(long position, byte[] src) {
+        at(position).put(src);
+    }
+}
@@ -0,0 +1,21 @@
+package seamcarving;
+
+import java.util.List;
+
+/**
+ * A seam finder that works on energies of some numeric precision, such as {@code double[][]},
+ * {@code float[][]} or fixed-point {@code short[][]}.
+ *
+ * Lower precisions use less memory per pixel, which speeds up finders that are limited by memory
+ * bandwidth. Energies are indexed by column and then row, the same as for {@link SeamFinder}.
+ *
+ * @param <E> the type of the energy matrix
+ * @see SeamFinder
+ * @see FloatDynamicProgrammingSeamFinder
+ * @see FixedPointDynamicProgrammingSeamFinder
+ */
+public interface PrecisionSeamFinder<E> {
+    List<Integer> findHorizontalSeam(E energies);
+
+    List<Integer> findVerticalSeam(E energies);
+}
@@ -0,0 +1,166 @@
+package seamcarving;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the seams of {@link FloatDynamicProgrammingSeamFinder} and
+ * {@link FixedPointDynamicProgrammingSeamFinder} against {@link DynamicProgrammingSeamFinder},
+ * and exits with status 1 if any seam isn't connected or costs more than rounding allows.
+ *
+ * <pre>
+ * java seamcarving.PrecisionSeamFinderCheck [trials] [seed]
+ * </pre>
+ *
+ * Costs are summed in double precision from the original energies. The float seam may cost more
+ * than the optimal seam by the rounding of every float addition along the way, and the
+ * fixed-point seam by the quantization error of every energy on both seams. Besides random grids,
+ * single-column and single-row grids are checked, as are energies that quantize to values just
+ * below Short.MAX_VALUE, where the fixed-point weights get closest to saturating.
+ */
+public class PrecisionSeamFinderCheck {
+    // The float costs of the found seam and of the optimal seam can each be off by one rounding
+    // of the energy and one of the sum per line, each at most half an ulp relative to the cost.
+    private static final double FLOAT_EPSILON = 2 * Math.ulp(1.0f);
+    private static final double DOUBLE_EPSILON = 1e-12;
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 373;
+        Random random = new Random(seed);
+
+        int failures = 0;
+        int grids = 0;
+        for (int trial = 0; trial < trials; ++trial) {
+            int width = 1 + random.nextInt(trial % 2 == 0 ? 8 : 300);
+            int height = 1 + random.nextInt(trial % 2 == 0 ? 8 : 300);
+            double[][][] cases = {
+                randomGrid(random, width, height, 0, 1000),
+                randomGrid(random, 1, height, 0, 1000),
+                randomGrid(random, width, 1, 0, 1000),
+                randomGrid(random, 1, 1, 0, 1000),
+                tiedGrid(random, width, height),
+                // Every energy quantizes to within 1% of Short.MAX_VALUE.
+                randomGrid(random, width, height, 1e6 * 0.99, 1e6),
+            };
+            for (double[][] energies : cases) {
+                ++grids;
+                String problem = check(energies);
+                if (problem != null) {
+                    ++failures;
+                    System.out.printf("trial %d, %dx%d: %s%n", trial, energies.length, energies[0].length, problem);
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "OK: " + grids + " grids" : failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static double[][] randomGrid(Random random, int width, int height, double min, double max) {
+        double[][] energies = new double[width][height];
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                energies[x][y] = min + random.nextDouble() * (max - min);
+            }
+        }
+        return energies;
+    }
+
+    // Only a few distinct energies, so many seams tie.
+    private static double[][] tiedGrid(Random random, int width, int height) {
+        double[][] energies = new double[width][height];
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                energies[x][y] = random.nextInt(4);
+            }
+        }
+        return energies;
+    }
+
+    // Returns a description of the first bad seam, or null if they are all within tolerance.
+    private static String check(double[][] energies) {
+        DynamicProgrammingSeamFinder exact = new DynamicProgrammingSeamFinder();
+        FloatDynamicProgrammingSeamFinder floats = new FloatDynamicProgrammingSeamFinder();
+        FixedPointDynamicProgrammingSeamFinder fixed = new FixedPointDynamicProgrammingSeamFinder();
+
+        double max = 0;
+        for (double[] column : energies) {
+            for (double energy : column) {
+                max = Math.max(max, energy);
+            }
+        }
+        double scale = max == 0 ? 1 : Short.MAX_VALUE / max;
+        float[][] floatEnergies = FloatDynamicProgrammingSeamFinder.toFloat(energies);
+        short[][] shortEnergies = FixedPointDynamicProgrammingSeamFinder.quantize(energies, scale);
+
+        for (boolean vertical : new boolean[]{false, true}) {
+            int lines = vertical ? energies[0].length : energies.length;
+            int span = vertical ? energies.length : energies[0].length;
+            List<Integer> expected = vertical ? exact.findVerticalSeam(energies) : exact.findHorizontalSeam(energies);
+            List<Integer> single = vertical ? floats.findVerticalSeam(floatEnergies) : floats.findHorizontalSeam(floatEnergies);
+            List<Integer> point = vertical ? fixed.findVerticalSeam(shortEnergies) : fixed.findHorizontalSeam(shortEnergies);
+
+            String orientation = vertical ? "vertical" : "horizontal";
+            String problem = validate(expected, lines, span);
+            if (problem != null) {
+                return orientation + " double seam " + problem;
+            }
+            problem = validate(single, lines, span);
+            if (problem != null) {
+                return orientation + " float seam " + problem;
+            }
+            problem = validate(point, lines, span);
+            if (problem != null) {
+                return orientation + " fixed-point seam " + problem;
+            }
+
+            double optimal = cost(energies, expected, vertical);
+            double floatTolerance = lines * FLOAT_EPSILON * optimal;
+            // Quantizing moves every energy, and so each seam's cost, by at most half a step per line.
+            double fixedTolerance = lines / scale;
+            double slack = DOUBLE_EPSILON * Math.max(1, optimal);
+            problem = compare("float", cost(energies, single, vertical), optimal, floatTolerance + slack, slack);
+            if (problem == null) {
+                problem = compare("fixed-point", cost(energies, point, vertical), optimal, fixedTolerance + slack, slack);
+            }
+            if (problem != null) {
+                return orientation + " " + problem;
+            }
+        }
+        return null;
+    }
+
+    // Returns a description of how the seam is malformed, or null if it isn't.
+    private static String validate(List<Integer> seam, int lines, int span) {
+        if (seam.size() != lines) {
+            return "has " + seam.size() + " indices for " + lines + " lines";
+        }
+        for (int i = 0; i < lines; ++i) {
+            int index = seam.get(i);
+            if (index < 0 || index >= span) {
+                return "is out of range at line " + i;
+            }
+            if (i > 0 && Math.abs(index - seam.get(i - 1)) > 1) {
+                return "isn't connected at line " + i;
+            }
+        }
+        return null;
+    }
+
+    private static String compare(String name, double actual, double optimal, double above, double below) {
+        if (actual > optimal + above || actual < optimal - below) {
+            return String.format("%s seam costs %s, optimal %s, tolerance %s", name, actual, optimal, above);
+        }
+        return null;
+    }
+
+    private static double cost(double[][] energies, List<Integer> seam, boolean vertical) {
+        double cost = 0;
+        for (int i = 0; i < seam.size(); ++i) {
+            cost += vertical ? energies[seam.get(i)][i] : energies[i][seam.get(i)];
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,211 @@
+package seamcarving;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Coarse-to-fine implementation of the {@link SeamFinder} interface.
+ *
+ * The energies are repeatedly downsampled by a factor of 2 until the image is small, and the
+ * seam is found on the smallest level with the regular dynamic programming algorithm. The seam
+ * is then upsampled one level at a time and refined by running the dynamic program only inside a
+ * narrow band around the upsampled path. Each refinement costs roughly width * band height
+ * instead of width * height.
+ *
+ * Building the pyramid reads every energy, so a single call to {@link #findHorizontalSeam} still
+ * costs O(width * height), and {@link #findVerticalSeam} transposes the image first. To remove
+ * many seams, use {@link #findHorizontalSeams} or {@link #findVerticalSeams}, which build the
+ * pyramid once and remove every seam from each level before searching for the next. After that,
+ * a seam costs the banded searches plus moving the energies after it up by one row in each column.
+ *
+ * The seams found this way are not guaranteed to be optimal, since the optimal seam may lie
+ * outside of the band.
+ *
+ * @see SeamFinder
+ * @see DynamicProgrammingSeamFinder
+ */
+public class PyramidSeamFinder implements SeamFinder {
+    private static final int DEFAULT_MIN_SIZE = 64;
+    private static final int DEFAULT_BAND_RADIUS = 2;
+
+    private final DynamicProgrammingSeamFinder finder;
+    private final int minSize;
+    private final int bandRadius;
+
+    public PyramidSeamFinder() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_BAND_RADIUS);
+    }
+
+    /**
+     * @param minSize the image is not downsampled if either dimension would drop below this size.
+     *                Must be > 0.
+     * @param bandRadius the number of extra rows searched on each side of the upsampled seam.
+     *                   Must be > 0.
+     */
+    public PyramidSeamFinder(int minSize, int bandRadius) {
+        if (minSize <= 0 || bandRadius <= 0) {
+            throw new IllegalArgumentException("minSize and bandRadius must be positive");
+        }
+        this.finder = new DynamicProgrammingSeamFinder();
+        this.minSize = minSize;
+        this.bandRadius = bandRadius;
+    }
+
+    @Override
+    public List<Integer> findHorizontalSeam(double[][] energies) {
+        return new Pyramid(energies).findSeams().get(0);
+    }
+
+    // Same strategy as the other seam finders: transpose and find the horizontal seam.
+    @Override
+    public List<Integer> findVerticalSeam(double[][] energies) {
+        return findHorizontalSeam(finder.transpose(energies));
+    }
+
+    /**
+     * Finds count horizontal seams, removing each one before looking for the next, as if
+     * {@link #findHorizontalSeam} were called on the energies left by the seams before it.
+     * The energies aren't modified.
+     *
+     * The coarser levels of the pyramid are kept half the size of the level below them by
+     * removing the seam found on that level, rather than by downsampling again, so they drift
+     * slightly from an exact downsample of the remaining energies. That only moves the bands the
+     * seams are searched in.
+     *
+     * @return the seams, each in the coordinates of the energies left by the seams before it
+     * @throws IllegalArgumentException if count isn't less than the height of the image
+     */
+    public List<List<Integer>> findHorizontalSeams(double[][] energies, int count) {
+        if (count < 0 || count >= energies[0].length) {
+            throw new IllegalArgumentException("Can't remove " + count + " seams from "
+                + energies[0].length + " rows");
+        }
+        // The finest level is changed in place as seams are removed, so work on a copy.
+        double[][] copy = new double[energies.length][];
+        for (int j = 0; j < energies.length; ++j) {
+            copy[j] = energies[j].clone();
+        }
+        Pyramid pyramid = new Pyramid(copy);
+        List<List<Integer>> result = new ArrayList<>(count);
+        for (int s = 0; s < count; ++s) {
+            List<List<Integer>> seams = pyramid.findSeams();
+            result.add(seams.get(0));
+            pyramid.remove(seams);
+        }
+        return result;
+    }
+
+    /**
+     * Finds count vertical seams, removing each one before looking for the next. The energies
+     * are transposed once for all of them.
+     *
+     * @see #findHorizontalSeams(double[][], int)
+     */
+    public List<List<Integer>> findVerticalSeams(double[][] energies, int count) {
+        return findHorizontalSeams(finder.transpose(energies), count);
+    }
+
+    // The levels of a pyramid, from the full-size energies to the coarsest. Seams are removed
+    // by shifting the rows after them up within each column, so only the first rows[l] rows of
+    // every column of level l are in use.
+    private class Pyramid {
+        final List<double[][]> levels;
+        final int[] rows;
+
+        Pyramid(double[][] energies) {
+            levels = new ArrayList<>();
+            double[][] level = energies;
+            levels.add(level);
+            while (level.length / 2 >= minSize && level[0].length / 2 >= minSize) {
+                level = downsample(level);
+                levels.add(level);
+            }
+            rows = new int[levels.size()];
+            for (int l = 0; l < rows.length; ++l) {
+                rows[l] = levels.get(l)[0].length;
+            }
+        }
+
+        // Returns the seam found on every level, starting with the finest.
+        List<List<Integer>> findSeams() {
+            int coarsest = levels.size() - 1;
+            double[][] level = levels.get(coarsest);
+            // The whole coarsest level is searched, as a band that covers every row in use.
+            int[] lo = new int[level.length];
+            int[] hi = new int[level.length];
+            Arrays.fill(hi, rows[coarsest] - 1);
+            List<Integer> seam = finder.findHorizontalSeam(level, lo, hi);
+
+            List<List<Integer>> seams = new ArrayList<>(levels.size());
+            seams.add(seam);
+            for (int l = coarsest - 1; l >= 0; --l) {
+                seam = refine(levels.get(l), rows[l], seam);
+                seams.add(seam);
+            }
+            Collections.reverse(seams);
+            return seams;
+        }
+
+        // Removes the finest seam from the finest level, and the seam of each coarser level from
+        // that level whenever it has more than half the rows of the level below it.
+        void remove(List<List<Integer>> seams) {
+            for (int l = 0; l < rows.length; ++l) {
+                if (l > 0 && rows[l] <= (rows[l - 1] + 1) / 2) {
+                    break;
+                }
+                double[][] level = levels.get(l);
+                List<Integer> seam = seams.get(l);
+                for (int j = 0; j < level.length; ++j) {
+                    int y = seam.get(j);
+                    System.arraycopy(level[j], y + 1, level[j], y, rows[l] - y - 1);
+                }
+                --rows[l];
+            }
+        }
+    }
+
+    // Averages every 2x2 block of energies into a single energy.
+    // Odd sized images keep their last row/column as a smaller block.
+    private static double[][] downsample(double[][] energies) {
+        int cols = energies.length;
+        int rows = energies[0].length;
+        int coarseCols = (cols + 1) / 2;
+        int coarseRows = (rows + 1) / 2;
+
+        double[][] coarse = new double[coarseCols][coarseRows];
+        for (int j = 0; j < coarseCols; ++j) {
+            int lastCol = Math.min(2 * j + 1, cols - 1);
+            for (int i = 0; i < coarseRows; ++i) {
+                int lastRow = Math.min(2 * i + 1, rows - 1);
+                double sum = 0;
+                int count = 0;
+                for (int x = 2 * j; x <= lastCol; ++x) {
+                    for (int y = 2 * i; y <= lastRow; ++y) {
+                        sum += energies[x][y];
+                        ++count;
+                    }
+                }
+                coarse[j][i] = sum / count;
+            }
+        }
+        return coarse;
+    }
+
+    // Upsamples the coarse seam to the given level and finds the best seam near it, using only
+    // the first rows rows of every column.
+    private List<Integer> refine(double[][] energies, int rows, List<Integer> coarseSeam) {
+        int cols = energies.length;
+
+        int[] lo = new int[cols];
+        int[] hi = new int[cols];
+        for (int j = 0; j < cols; ++j) {
+            // Each coarse cell covers rows 2y and 2y + 1 of the finer level.
+            int center = Math.min(2 * coarseSeam.get(Math.min(j / 2, coarseSeam.size() - 1)), rows - 1);
+            lo[j] = Math.max(0, center - bandRadius);
+            hi[j] = Math.min(rows - 1, center + 1 + bandRadius);
+        }
+        return finder.findHorizontalSeam(energies, lo, hi);
+    }
+}
@@ -0,0 +1,103 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Helpers for the raw grid file format shared by {@link MappedEnergyGrid} and {@link MappedPixelBuffer}.
+ *
+ * A file starts with a 16 byte header of little-endian ints: the magic number, the width, the
+ * height and the element type. It is followed by width * height little-endian elements, stored
+ * one column after the other (the same order as a {@code double[][]} energy matrix). The format
+ * is simple enough for a producer in any language to write, and for the carver to map without
+ * copying.
+ */
+final class RawGridFormat {
+    static final int MAGIC = 0x53434531; // "SCE1"
+    static final int HEADER_BYTES = 16;
+
+    // Element types. FLOAT64 is 0 so that files written before the type field existed still open.
+    static final int FLOAT64 = 0;
+    static final int FLOAT32 = 1;
+    static final int INT32 = 2;
+
+    private RawGridFormat() {
+    }
+
+    static int elementBytes(int type) {
+        switch (type) {
+            case FLOAT64:
+                return Double.BYTES;
+            case FLOAT32:
+                return Float.BYTES;
+            case INT32:
+                return Integer.BYTES;
+            default:
+                throw new IllegalArgumentException("Unknown element type: " + type);
+        }
+    }
+
+    static final class Header {
+        final int width;
+        final int height;
+        final int type;
+
+        Header(int width, int height, int type) {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        long columnBytes() {
+            return (long) height * elementBytes(type);
+        }
+    }
+
+    // Reads and validates the header, leaving the channel positioned after it.
+    static Header readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Keep reading until the whole header is in.
+        }
+        buffer.flip();
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a grid file: " + file);
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int type = buffer.getInt();
+        if (width <= 0 || height <= 0 || type < FLOAT64 || type > INT32) {
+            throw new IOException("Corrupt grid header: " + file);
+        }
+        Header header = new Header(width, height, type);
+        if (channel.size() < HEADER_BYTES + width * header.columnBytes()) {
+            throw new IOException("Truncated grid file: " + file);
+        }
+        return header;
+    }
+
+    // Maps the body of the file one column per line. Mappings stay valid after the channel is closed.
+    static MappedRegions mapColumns(FileChannel channel, Header header) throws IOException {
+        return new MappedRegions(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+            header.width, header.columnBytes());
+    }
+
+    static void writeHeader(FileChannel channel, Header header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(header.width).putInt(header.height).putInt(header.type).flip();
+        writeFully(channel, buffer);
+    }
+
+    static ByteBuffer allocateColumn(Header header) {
+        return ByteBuffer.allocate((int) header.columnBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
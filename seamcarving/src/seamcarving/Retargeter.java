@@ -0,0 +1,279 @@
+package seamcarving;
+
+/**
+ * Shrinks an image to a new width and height by removing both vertical and horizontal seams.
+ *
+ * Seams are removed greedily: while both dimensions still need to shrink, the cheapest vertical
+ * seam and the cheapest horizontal seam are both found, and the one with the lower total energy
+ * is removed. Once one dimension is done, only seams of the other orientation are removed.
+ *
+ * The image and its energies are kept in flat row-major arrays that are shrunk in place, and the
+ * dynamic program walks them with a stride that depends on the seam orientation, so nothing is
+ * ever transposed or reallocated between seams. Energies aren't recomputed as seams are removed.
+ *
+ * The weights of both dynamic programs are kept between seams, which takes twice the memory of
+ * one, so that neither is recomputed from scratch. When a seam is removed, the weights of its own
+ * orientation are shifted along with the energies, and only the cells next to the seam, or next to
+ * a cell whose weight changed, are recomputed. The other orientation's weights stay valid for the
+ * lines before the first line the seam touches, and are recomputed from there on when that
+ * orientation is next searched.
+ *
+ * Images are passed in and out indexed by column and then row, the same as energy matrices, and
+ * pixels are packed RGB ints.
+ *
+ * @see DynamicProgrammingSeamFinder
+ * @see SeamInserter
+ */
+public class Retargeter {
+    // Both arrays are row-major with a row length of `stride`.
+    // Only the first `width` entries of the first `height` rows are in use.
+    private final int[] pixels;
+    private final double[] energies;
+    private final int stride;
+    private int width;
+    private int height;
+
+    // The weights of the vertical and horizontal dynamic programs, in the same layout as the
+    // energies. The first verticalValid rows and the first horizontalValid columns are up to date.
+    private final double[] verticalWeights;
+    private final double[] horizontalWeights;
+    private int verticalValid;
+    private int horizontalValid;
+    private final int[] verticalSeam;
+    private final int[] horizontalSeam;
+
+    public Retargeter(int[][] pixels, double[][] energies) {
+        this.width = pixels.length;
+        this.height = pixels[0].length;
+        if (energies.length != width || energies[0].length != height) {
+            throw new IllegalArgumentException("Energies and pixels have different sizes");
+        }
+        this.stride = width;
+
+        this.pixels = new int[width * height];
+        this.energies = new double[width * height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                this.pixels[y * stride + x] = pixels[x][y];
+                this.energies[y * stride + x] = energies[x][y];
+            }
+        }
+
+        this.verticalWeights = new double[width * height];
+        this.horizontalWeights = new double[width * height];
+        this.verticalSeam = new int[height];
+        this.horizontalSeam = new int[width];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns a copy of the current image, indexed by column and then row.
+     */
+    public int[][] pixels() {
+        int[][] result = new int[width][height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                result[x][y] = pixels[y * stride + x];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes seams until the image is targetWidth by targetHeight.
+     */
+    public void retarget(int targetWidth, int targetHeight) {
+        while (removeNextSeam(targetWidth, targetHeight)) {
+            // Keep removing seams.
+        }
+    }
+
+    /**
+     * Removes the next seam on the way to a targetWidth by targetHeight image.
+     *
+     * @return false if the image was already the target size, so no seam was removed
+     * @throws IllegalArgumentException if the target is empty or larger than the current image
+     */
+    public boolean removeNextSeam(int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0 || targetWidth > width || targetHeight > height) {
+            throw new IllegalArgumentException("Can't retarget a " + width + "x" + height
+                + " image to " + targetWidth + "x" + targetHeight);
+        }
+        boolean shrinkWidth = width > targetWidth;
+        boolean shrinkHeight = height > targetHeight;
+
+        if (shrinkWidth && shrinkHeight) {
+            double verticalCost = findSeam(true, verticalSeam);
+            double horizontalCost = findSeam(false, horizontalSeam);
+            if (verticalCost <= horizontalCost) {
+                removeVerticalSeam();
+            } else {
+                removeHorizontalSeam();
+            }
+        } else if (shrinkWidth) {
+            findSeam(true, verticalSeam);
+            removeVerticalSeam();
+        } else if (shrinkHeight) {
+            findSeam(false, horizontalSeam);
+            removeHorizontalSeam();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // Finds the cheapest seam of the given orientation, stores it in seam and returns its total energy.
+    // A vertical seam has one cell per row (line) and a horizontal seam has one cell per column.
+    // Cell i of a line is at index line * lineStride + i * cellStride in the row-major arrays.
+    // Only the lines whose weights are out of date are recomputed.
+    private double findSeam(boolean vertical, int[] seam) {
+        int lines = vertical ? height : width;
+        int span = vertical ? width : height;
+        int lineStride = vertical ? stride : 1;
+        int cellStride = vertical ? 1 : stride;
+        double[] weights = vertical ? verticalWeights : horizontalWeights;
+        int valid = vertical ? verticalValid : horizontalValid;
+
+        if (valid == 0) {
+            for (int i = 0; i < span; ++i) {
+                weights[i * cellStride] = energies[i * cellStride];
+            }
+            valid = 1;
+        }
+
+        for (int line = valid; line < lines; ++line) {
+            int prevBase = (line - 1) * lineStride;
+            int base = line * lineStride;
+            for (int i = 0; i < span; ++i) {
+                // Find the minimum adjacent previous weight and add it to the corresponding energy.
+                double min = weights[prevBase + i * cellStride];
+                if (i > 0) {
+                    min = Math.min(min, weights[prevBase + (i - 1) * cellStride]);
+                }
+                if (i < span - 1) {
+                    min = Math.min(min, weights[prevBase + (i + 1) * cellStride]);
+                }
+                weights[base + i * cellStride] = min + energies[base + i * cellStride];
+            }
+        }
+        if (vertical) {
+            verticalValid = lines;
+        } else {
+            horizontalValid = lines;
+        }
+
+        // Find the endpoint of the seam in the last line, then backtrack.
+        int lastBase = (lines - 1) * lineStride;
+        int minIdx = 0;
+        for (int i = 1; i < span; ++i) {
+            if (weights[lastBase + i * cellStride] < weights[lastBase + minIdx * cellStride]) {
+                minIdx = i;
+            }
+        }
+        double cost = weights[lastBase + minIdx * cellStride];
+        seam[lines - 1] = minIdx;
+
+        for (int line = lines - 2; line >= 0; --line) {
+            int base = line * lineStride;
+            int prevIdx = seam[line + 1];
+            int from = Math.max(prevIdx - 1, 0);
+            int to = Math.min(prevIdx + 1, span - 1);
+            int bestIdx = from;
+            for (int i = from + 1; i <= to; ++i) {
+                if (weights[base + i * cellStride] < weights[base + bestIdx * cellStride]) {
+                    bestIdx = i;
+                }
+            }
+            seam[line] = bestIdx;
+        }
+        return cost;
+    }
+
+    // Rows are contiguous, so each row is shifted left with a single array copy.
+    private void removeVerticalSeam() {
+        int first = width;
+        for (int y = 0; y < height; ++y) {
+            int x = verticalSeam[y];
+            int base = y * stride;
+            System.arraycopy(pixels, base + x + 1, pixels, base + x, width - x - 1);
+            System.arraycopy(energies, base + x + 1, energies, base + x, width - x - 1);
+            System.arraycopy(verticalWeights, base + x + 1, verticalWeights, base + x, width - x - 1);
+            first = Math.min(first, x);
+        }
+        --width;
+        repairWeights(true, verticalSeam);
+        // Columns before the seam, and so their horizontal weights, are untouched.
+        horizontalValid = Math.min(horizontalValid, first);
+    }
+
+    // Columns are strided, so each column is shifted up one cell at a time.
+    private void removeHorizontalSeam() {
+        int first = height;
+        for (int x = 0; x < width; ++x) {
+            for (int y = horizontalSeam[x]; y < height - 1; ++y) {
+                pixels[y * stride + x] = pixels[(y + 1) * stride + x];
+                energies[y * stride + x] = energies[(y + 1) * stride + x];
+                horizontalWeights[y * stride + x] = horizontalWeights[(y + 1) * stride + x];
+            }
+            first = Math.min(first, horizontalSeam[x]);
+        }
+        --height;
+        repairWeights(false, horizontalSeam);
+        // Rows before the seam, and so their vertical weights, are untouched.
+        verticalValid = Math.min(verticalValid, first);
+    }
+
+    // Brings the valid lines of the given orientation's weights up to date after one of its seams
+    // was removed and the weights were shifted along with the energies.
+    // A cell only needs recomputing if its neighbors in the previous line changed: either because
+    // the seam ran between them, which only happens next to the seam, or because one of their
+    // weights changed. The first line is just its energies, which moved along with the weights.
+    private void repairWeights(boolean vertical, int[] seam) {
+        int span = vertical ? width : height;
+        int lineStride = vertical ? stride : 1;
+        int cellStride = vertical ? 1 : stride;
+        double[] weights = vertical ? verticalWeights : horizontalWeights;
+        int valid = vertical ? verticalValid : horizontalValid;
+
+        // The cells of the previous line whose weights changed, or an empty range.
+        int changedLo = 0;
+        int changedHi = -1;
+        for (int line = 1; line < valid; ++line) {
+            int lo = Math.min(seam[line], seam[line - 1]) - 1;
+            int hi = Math.max(seam[line], seam[line - 1]);
+            if (changedLo <= changedHi) {
+                lo = Math.min(lo, changedLo - 1);
+                hi = Math.max(hi, changedHi + 1);
+            }
+            lo = Math.max(lo, 0);
+            hi = Math.min(hi, span - 1);
+
+            int prevBase = (line - 1) * lineStride;
+            int base = line * lineStride;
+            changedLo = span;
+            changedHi = -1;
+            for (int i = lo; i <= hi; ++i) {
+                double min = weights[prevBase + i * cellStride];
+                if (i > 0) {
+                    min = Math.min(min, weights[prevBase + (i - 1) * cellStride]);
+                }
+                if (i < span - 1) {
+                    min = Math.min(min, weights[prevBase + (i + 1) * cellStride]);
+                }
+                double weight = min + energies[base + i * cellStride];
+                if (weight != weights[base + i * cellStride]) {
+                    weights[base + i * cellStride] = weight;
+                    changedLo = Math.min(changedLo, i);
+                    changedHi = i;
+                }
+            }
+        }
+    }
+}
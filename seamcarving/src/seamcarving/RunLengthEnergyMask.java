@@ -0,0 +1,129 @@
+package seamcarving;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link EnergyMask} that stores, for every column, a sorted list of runs of rows with a bias.
+ *
+ * This is much smaller than a bit per pixel when the masked regions are large and simple, such as
+ * face or logo bounding boxes. Masks are immutable and are created with a {@link Builder}.
+ *
+ * @see EnergyMask
+ */
+public class RunLengthEnergyMask implements EnergyMask {
+    // For column x, run r covers rows starts[x][r] (inclusive) to ends[x][r] (exclusive).
+    private final int[][] starts;
+    private final int[][] ends;
+    private final double[][] biases;
+    private final double minBias;
+
+    private RunLengthEnergyMask(int[][] starts, int[][] ends, double[][] biases, double minBias) {
+        this.starts = starts;
+        this.ends = ends;
+        this.biases = biases;
+        this.minBias = minBias;
+    }
+
+    @Override
+    public double bias(int x, int y) {
+        int[] columnStarts = starts[x];
+        if (columnStarts.length == 0) {
+            return 0;
+        }
+        // Find the last run that starts at or before y.
+        int run = Arrays.binarySearch(columnStarts, y);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        if (run >= 0 && y < ends[x][run]) {
+            return biases[x][run];
+        }
+        return 0;
+    }
+
+    @Override
+    public double minBias() {
+        return minBias;
+    }
+
+    /**
+     * Builds {@link RunLengthEnergyMask}s.
+     */
+    public static class Builder {
+        private final int height;
+        private final List<List<Run>> runs;
+
+        public Builder(int width, int height) {
+            this.height = height;
+            this.runs = new ArrayList<>(width);
+            for (int x = 0; x < width; ++x) {
+                runs.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Adds a bias to the rows y0 <= y < y1 of column x.
+         *
+         * @throws IllegalArgumentException if the run overlaps a run already added to the column
+         */
+        public Builder addRun(int x, int y0, int y1, double bias) {
+            if (y0 < 0 || y1 > height || y0 >= y1) {
+                throw new IllegalArgumentException("Invalid run [" + y0 + ", " + y1 + ")");
+            }
+            for (Run run : runs.get(x)) {
+                if (y0 < run.end && run.start < y1) {
+                    throw new IllegalArgumentException("Run [" + y0 + ", " + y1 + ") overlaps another run");
+                }
+            }
+            runs.get(x).add(new Run(y0, y1, bias));
+            return this;
+        }
+
+        /**
+         * Adds a bias to every pixel with x0 <= x < x1 and y0 <= y < y1.
+         */
+        public Builder addRectangle(int x0, int y0, int x1, int y1, double bias) {
+            for (int x = x0; x < x1; ++x) {
+                addRun(x, y0, y1, bias);
+            }
+            return this;
+        }
+
+        public RunLengthEnergyMask build() {
+            int width = runs.size();
+            int[][] starts = new int[width][];
+            int[][] ends = new int[width][];
+            double[][] biases = new double[width][];
+            double minBias = 0;
+            for (int x = 0; x < width; ++x) {
+                List<Run> column = new ArrayList<>(runs.get(x));
+                column.sort((a, b) -> Integer.compare(a.start, b.start));
+                starts[x] = new int[column.size()];
+                ends[x] = new int[column.size()];
+                biases[x] = new double[column.size()];
+                for (int r = 0; r < column.size(); ++r) {
+                    starts[x][r] = column.get(r).start;
+                    ends[x][r] = column.get(r).end;
+                    biases[x][r] = column.get(r).bias;
+                    minBias = Math.min(minBias, biases[x][r]);
+                }
+            }
+            return new RunLengthEnergyMask(starts, ends, biases, minBias);
+        }
+
+        // The rows start (inclusive) to end (exclusive) of one column, and their bias.
+        private static class Run {
+            final int start;
+            final int end;
+            final double bias;
+
+            Run(int start, int end, double bias) {
+                this.start = start;
+                this.end = end;
+                this.bias = bias;
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package seamcarving;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, compactly stored seam.
+ *
+ * After the first index, every step of a seam is -1, 0 or +1, so a seam is stored as its first
+ * index followed by 2 bits per step, 32 steps to a long. To keep random access fast, the index
+ * at every {@value #CHECKPOINT_INTERVAL}th position is stored as well, and the steps after a
+ * checkpoint are summed a whole long at a time with bit counting.
+ *
+ * A seam is orientation-agnostic: element i is the index of the seam in line i, whether lines
+ * are columns (for horizontal seams) or rows (for vertical seams).
+ *
+ * @see SeamSerializer
+ */
+public final class Seam {
+    private static final int STEPS_PER_WORD = 32;
+    static final int CHECKPOINT_INTERVAL = 256;
+    private static final int WORDS_PER_CHECKPOINT = CHECKPOINT_INTERVAL / STEPS_PER_WORD;
+    private static final long LOW_BITS = 0x5555555555555555L;
+    private static final long HIGH_BITS = 0xAAAAAAAAAAAAAAAAL;
+
+    private final int length;
+    // Step i (from element i to element i + 1) is stored as step + 1 in bits 2 * (i % 32) of words[i / 32].
+    private final long[] words;
+    // checkpoints[c] is the value of element c * CHECKPOINT_INTERVAL.
+    private final int[] checkpoints;
+
+    private Seam(int length, long[] words) {
+        this.length = length;
+        this.words = words;
+        this.checkpoints = new int[(length + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL];
+    }
+
+    /**
+     * Encodes the given seam indices.
+     *
+     * @throws IllegalArgumentException if the seam is empty or moves by more than 1 between lines
+     */
+    public static Seam of(int[] seam) {
+        if (seam.length == 0) {
+            throw new IllegalArgumentException("A seam needs at least one index");
+        }
+        Seam result = new Seam(seam.length, new long[(seam.length - 1 + STEPS_PER_WORD - 1) / STEPS_PER_WORD]);
+        for (int i = 1; i < seam.length; ++i) {
+            int step = seam[i] - seam[i - 1];
+            if (step < -1 || step > 1) {
+                throw new IllegalArgumentException("Seam moves by " + step + " at index " + i);
+            }
+            result.words[(i - 1) / STEPS_PER_WORD] |= (long) (step + 1) << (2 * ((i - 1) % STEPS_PER_WORD));
+        }
+        for (int c = 0; c < result.checkpoints.length; ++c) {
+            result.checkpoints[c] = seam[c * CHECKPOINT_INTERVAL];
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the given seam indices.
+     *
+     * @throws IllegalArgumentException if the seam is empty or moves by more than 1 between lines
+     */
+    public static Seam of(List<Integer> seam) {
+        int[] indices = new int[seam.size()];
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = seam.get(i);
+        }
+        return of(indices);
+    }
+
+    /** Returns the number of lines the seam goes through. */
+    public int length() {
+        return length;
+    }
+
+    /** Returns the index of the seam in line i. */
+    public int get(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + length);
+        }
+        int c = i / CHECKPOINT_INTERVAL;
+        int value = checkpoints[c];
+        int word = c * WORDS_PER_CHECKPOINT;
+        int remaining = i - c * CHECKPOINT_INTERVAL;
+
+        // Whole words first, then the low part of the last word.
+        while (remaining >= STEPS_PER_WORD) {
+            value += sumSteps(words[word], STEPS_PER_WORD);
+            ++word;
+            remaining -= STEPS_PER_WORD;
+        }
+        if (remaining > 0) {
+            value += sumSteps(words[word] & ((1L << (2 * remaining)) - 1), remaining);
+        }
+        return value;
+    }
+
+    // Each field holds step + 1, so the sum of the fields minus the count is the sum of the steps.
+    private static int sumSteps(long fields, int count) {
+        return Long.bitCount(fields & LOW_BITS) + 2 * Long.bitCount(fields & HIGH_BITS) - count;
+    }
+
+    /**
+     * Decodes every index of the seam into dest, starting at dest[offset].
+     */
+    public void copyTo(int[] dest, int offset) {
+        int value = checkpoints[0];
+        dest[offset] = value;
+        for (int i = 1; i < length; ++i) {
+            value += step(i - 1);
+            dest[offset + i] = value;
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[length];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /**
+     * Returns a read-only list view of the seam, for code that works with {@link SeamFinder} seams.
+     */
+    public List<Integer> toList() {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return Seam.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+    }
+
+    private int step(int i) {
+        return (int) ((words[i / STEPS_PER_WORD] >>> (2 * (i % STEPS_PER_WORD))) & 3) - 1;
+    }
+
+    /**
+     * Returns a copy of lines where the seam's element has been removed from every line.
+     * For an energy matrix indexed by column and then row, this removes a horizontal seam.
+     */
+    public double[][] removeFrom(double[][] lines) {
+        checkLineCount(lines.length);
+        double[][] result = new double[length][];
+        int value = checkpoints[0];
+        for (int i = 0; i < length; ++i) {
+            if (i > 0) {
+                value += step(i - 1);
+            }
+            double[] line = lines[i];
+            result[i] = new double[line.length - 1];
+            System.arraycopy(line, 0, result[i], 0, value);
+            System.arraycopy(line, value + 1, result[i], value, line.length - value - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of lines where the seam's element has been removed from every line.
+     * For an image indexed by column and then row, this removes a horizontal seam.
+     */
+    public int[][] removeFrom(int[][] lines) {
+        checkLineCount(lines.length);
+        int[][] result = new int[length][];
+        int value = checkpoints[0];
+        for (int i = 0; i < length; ++i) {
+            if (i > 0) {
+                value += step(i - 1);
+            }
+            int[] line = lines[i];
+            result[i] = new int[line.length - 1];
+            System.arraycopy(line, 0, result[i], 0, value);
+            System.arraycopy(line, value + 1, result[i], value, line.length - value - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the seam in place from a flat buffer where line i starts at i * stride and the
+     * first span entries of every line are in use. Everything after the seam in a line moves
+     * over by one. For a row-major image, this removes a vertical seam.
+     */
+    public void removeFrom(int[] buffer, int stride, int span) {
+        int value = checkpoints[0];
+        for (int i = 0; i < length; ++i) {
+            if (i > 0) {
+                value += step(i - 1);
+            }
+            int base = i * stride;
+            System.arraycopy(buffer, base + value + 1, buffer, base + value, span - value - 1);
+        }
+    }
+
+    /** Returns whether every index of the seam is in [0, span). */
+    boolean fitsIn(int span) {
+        int value = checkpoints[0];
+        if (value < 0 || value >= span) {
+            return false;
+        }
+        for (int i = 1; i < length; ++i) {
+            value += step(i - 1);
+            if (value < 0 || value >= span) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkLineCount(int lines) {
+        if (lines != length) {
+            throw new IllegalArgumentException("Seam has length " + length + " but there are " + lines + " lines");
+        }
+    }
+
+    /** Returns the approximate number of bytes this seam uses on the heap. */
+    long bytes() {
+        return 32L + (long) words.length * Long.BYTES + (long) checkpoints.length * Integer.BYTES;
+    }
+
+    // The checkpoints are derived from the steps, so only the first index and the steps are written.
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(length);
+        out.writeInt(checkpoints[0]);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    // Reads a seam written by writeTo, rejecting anything writeTo couldn't have written for a seam
+    // of at most maxLength lines with every index in [0, span): an invalid step, an index out of
+    // range, or bits set past the last step.
+    static Seam readFrom(DataInput in, int maxLength, int span) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > maxLength) {
+            throw new IOException("Invalid seam length: " + length);
+        }
+        Seam seam = new Seam(length, new long[(length - 1 + STEPS_PER_WORD - 1) / STEPS_PER_WORD]);
+        int value = in.readInt();
+        if (value < 0 || value >= span) {
+            throw new IOException("Seam index out of range at index 0: " + value);
+        }
+        seam.checkpoints[0] = value;
+        byte[] bytes = new byte[seam.words.length * Long.BYTES];
+        in.readFully(bytes);
+        ByteBuffer.wrap(bytes).asLongBuffer().get(seam.words);
+
+        int used = (length - 1) % STEPS_PER_WORD;
+        if (used != 0 && (seam.words[seam.words.length - 1] >>> (2 * used)) != 0) {
+            throw new IOException("Seam has bits set past its last step");
+        }
+        for (int i = 1; i < length; ++i) {
+            int step = seam.step(i - 1);
+            if (step > 1) {
+                throw new IOException("Invalid seam step at index " + i);
+            }
+            value += step;
+            if (value < 0 || value >= span) {
+                throw new IOException("Seam index out of range at index " + i + ": " + value);
+            }
+            if (i % CHECKPOINT_INTERVAL == 0) {
+                seam.checkpoints[i / CHECKPOINT_INTERVAL] = value;
+            }
+        }
+        return seam;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Seam)) {
+            return false;
+        }
+        Seam other = (Seam) o;
+        return length == other.length && checkpoints[0] == other.checkpoints[0]
+            && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * length + checkpoints[0]) + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,247 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A size-bounded cache of seams, keyed by a hash of the energies and the target size of the image.
+ *
+ * Seams are stored as compact {@link Seam}s rather than as lists of boxed Integers. When the
+ * cache grows past its byte limit, the least recently used entries are evicted. If a disk
+ * directory is given, evicted entries are written there and are loaded back on a later miss.
+ *
+ * This class is thread-safe.
+ *
+ * @see CachingSeamFinder
+ * @see Seam
+ */
+public class SeamCache {
+    // Rough per-entry overhead of the map entry, key and list.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final Path diskDirectory;
+    private final LinkedHashMap<Key, List<Seam>> entries;
+    private long bytes;
+
+    /**
+     * Creates an in-memory cache that holds roughly maxBytes worth of seams.
+     */
+    public SeamCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * Creates a cache that holds roughly maxBytes worth of seams in memory, and spills evicted
+     * seams to files in diskDirectory. diskDirectory may be null to disable the disk tier.
+     */
+    public SeamCache(long maxBytes, Path diskDirectory) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.diskDirectory = diskDirectory;
+        // Access order, so iteration starts at the least recently used entry.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.bytes = 0;
+    }
+
+    /**
+     * Returns the key for carving an image with the given energies down to the target size.
+     * Hashing reads every energy once, which is much cheaper than finding even a single seam.
+     */
+    public static Key key(double[][] energies, int targetWidth, int targetHeight) {
+        long hash = 0;
+        for (double[] column : energies) {
+            for (double energy : column) {
+                hash = (hash ^ Double.doubleToRawLongBits(energy)) * 0x9E3779B97F4A7C15L;
+            }
+            hash = Long.rotateLeft(hash, 31);
+        }
+        // Final avalanche step from MurmurHash3.
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return new Key(hash, energies.length, energies[0].length, targetWidth, targetHeight);
+    }
+
+    /**
+     * Returns the seams stored for the key, or null if there are none.
+     */
+    public List<Seam> get(Key key) {
+        synchronized (this) {
+            List<Seam> seams = entries.get(key);
+            if (seams != null || diskDirectory == null) {
+                return seams;
+            }
+        }
+        // Disk reads happen outside the lock, so they don't hold up lookups of other keys.
+        List<Seam> seams = readFromDisk(key);
+        if (seams != null) {
+            writeToDisk(store(key, seams));
+        }
+        return seams;
+    }
+
+    /**
+     * Stores the seams for the key, replacing any seams already stored for it.
+     */
+    public void put(Key key, List<Seam> seams) {
+        writeToDisk(store(key, Collections.unmodifiableList(new ArrayList<>(seams))));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Stores the entry and returns the entries evicted to make room for it, which the caller
+    // spills to disk after the lock is released.
+    private synchronized List<Map.Entry<Key, List<Seam>>> store(Key key, List<Seam> seams) {
+        List<Seam> old = entries.put(key, seams);
+        if (old != null) {
+            bytes -= bytes(old);
+        }
+        bytes += bytes(seams);
+
+        List<Map.Entry<Key, List<Seam>>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Key, List<Seam>>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, List<Seam>> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                // Never evict the entry that was just stored.
+                continue;
+            }
+            iterator.remove();
+            bytes -= bytes(eldest.getValue());
+            evicted.add(new AbstractMap.SimpleImmutableEntry<>(eldest));
+        }
+        return evicted;
+    }
+
+    private static long bytes(List<Seam> seams) {
+        long total = ENTRY_OVERHEAD_BYTES;
+        for (Seam seam : seams) {
+            total += seam.bytes();
+        }
+        return total;
+    }
+
+    // The disk tier is best-effort: failing to read or write it, or finding a file that doesn't
+    // hold the seams for the key, is treated as a miss. A file that can't be used is deleted.
+    private List<Seam> readFromDisk(Key key) {
+        Path file = diskDirectory.resolve(key.fileName());
+        if (!Files.exists(file)) {
+            return null;
+        }
+        // Every seam removes a column or a row, and goes through every row or column that is left.
+        int count = (key.width - key.targetWidth) + (key.height - key.targetHeight);
+        int maxLength = Math.max(key.width, key.height);
+        List<Seam> seams;
+        try (InputStream in = Files.newInputStream(file)) {
+            seams = SeamSerializer.read(in, count, maxLength, maxLength);
+        } catch (IOException e) {
+            seams = null;
+        }
+        if (seams == null || !fits(key, seams)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // It will be replaced when the entry is next evicted.
+            }
+            return null;
+        }
+        return Collections.unmodifiableList(seams);
+    }
+
+    // Checks that the seams are exactly the ones CachingSeamFinder finds for the key: first the
+    // vertical seams, one index per row, then the horizontal seams, one index per remaining
+    // column, each within the columns or rows left by the seams before it.
+    private static boolean fits(Key key, List<Seam> seams) {
+        int verticalSeams = key.width - key.targetWidth;
+        if (seams.size() != verticalSeams + (key.height - key.targetHeight)) {
+            return false;
+        }
+        for (int s = 0; s < seams.size(); ++s) {
+            Seam seam = seams.get(s);
+            boolean vertical = s < verticalSeams;
+            int length = vertical ? key.height : key.targetWidth;
+            int span = vertical ? key.width - s : key.height - (s - verticalSeams);
+            if (seam.length() != length || !seam.fitsIn(span)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeToDisk(List<Map.Entry<Key, List<Seam>>> evicted) {
+        if (diskDirectory == null) {
+            return;
+        }
+        for (Map.Entry<Key, List<Seam>> entry : evicted) {
+            Path file = diskDirectory.resolve(entry.getKey().fileName());
+            try {
+                // Write to a temporary file first, so readers never see a partly written file.
+                Path temp = Files.createTempFile(diskDirectory, "seams", ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    SeamSerializer.write(out, entry.getValue());
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Dropping the entry is fine; it will be recomputed.
+            }
+        }
+    }
+
+    /**
+     * Identifies a carve: the hash of the energies, the size of the image and the target size.
+     */
+    public static final class Key {
+        private final long hash;
+        private final int width;
+        private final int height;
+        private final int targetWidth;
+        private final int targetHeight;
+
+        public Key(long hash, int width, int height, int targetWidth, int targetHeight) {
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+        }
+
+        private String fileName() {
+            return String.format("%016x-%dx%d-%dx%d.seams", hash, width, height, targetWidth, targetHeight);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && width == other.width && height == other.height
+                && targetWidth == other.targetWidth && targetHeight == other.targetHeight;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, width, height, targetWidth, targetHeight);
+        }
+    }
+}
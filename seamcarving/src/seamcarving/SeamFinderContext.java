@@ -0,0 +1,88 @@
+package seamcarving;
+
+/**
+ * Reusable scratch buffers for {@link DynamicProgrammingSeamFinder}, so that finding a seam
+ * doesn't allocate anything once the buffers are large enough.
+ *
+ * Buffers only ever grow, so a context that has been used for the largest image it will see
+ * never allocates again. A context must only be used by one thread at a time; use
+ * {@link #forCurrentThread()} to get one per thread.
+ *
+ * @see DynamicProgrammingSeamFinder#findHorizontalSeamInto(double[][], SeamFinderContext)
+ */
+public class SeamFinderContext {
+    private static final ThreadLocal<SeamFinderContext> CONTEXTS = ThreadLocal.withInitial(SeamFinderContext::new);
+
+    private double[] weights;
+    // Seams are kept per orientation, so alternating between the two doesn't reallocate.
+    // Only the first horizontalLength or verticalLength entries hold the last seam found.
+    private int[] horizontalSeam;
+    private int[] verticalSeam;
+    private int horizontalLength;
+    private int verticalLength;
+    private final DynamicProgramming.FlatOrder order = new DynamicProgramming.FlatOrder();
+
+    public SeamFinderContext() {
+        this.weights = new double[0];
+        this.horizontalSeam = new int[0];
+        this.verticalSeam = new int[0];
+    }
+
+    /**
+     * Returns the context owned by the calling thread.
+     */
+    public static SeamFinderContext forCurrentThread() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Returns the length of the last horizontal seam found with this context, which is the
+     * number of entries in use at the start of the array findHorizontalSeamInto returned.
+     */
+    public int horizontalSeamLength() {
+        return horizontalLength;
+    }
+
+    /**
+     * Returns the length of the last vertical seam found with this context, which is the
+     * number of entries in use at the start of the array findVerticalSeamInto returned.
+     */
+    public int verticalSeamLength() {
+        return verticalLength;
+    }
+
+    // Returns a weight buffer with room for at least size weights.
+    double[] weights(int size) {
+        if (weights.length < size) {
+            weights = new double[grow(weights.length, size)];
+        }
+        return weights;
+    }
+
+    // Returns the context's comparator, set to compare cells of the given flat weights.
+    DynamicProgramming.FlatOrder order(double[] weights, int span) {
+        return order.of(weights, span);
+    }
+
+    // Returns the seam buffer of the given orientation, with room for at least length indices,
+    // and records length as the length of that orientation's seam.
+    int[] seam(int length, boolean vertical) {
+        if (vertical) {
+            if (verticalSeam.length < length) {
+                verticalSeam = new int[grow(verticalSeam.length, length)];
+            }
+            verticalLength = length;
+            return verticalSeam;
+        }
+        if (horizontalSeam.length < length) {
+            horizontalSeam = new int[grow(horizontalSeam.length, length)];
+        }
+        horizontalLength = length;
+        return horizontalSeam;
+    }
+
+    // Grow geometrically so slowly growing images don't reallocate on every call.
+    private static int grow(int capacity, int size) {
+        return Math.max(size, (int) Math.min(Integer.MAX_VALUE - 8, 2L * capacity));
+    }
+}
@@ -0,0 +1,100 @@
+package seamcarving;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks that {@link DynamicProgrammingSeamFinder#findHorizontalSeamInto} and
+ * {@link DynamicProgrammingSeamFinder#findVerticalSeamInto} don't allocate once their context has
+ * seen the largest image, and exits with status 1 if they do.
+ *
+ * <pre>
+ * java seamcarving.SeamFinderContextCheck [iterations] [seed]
+ * </pre>
+ *
+ * The context is warmed up on the largest image, and the finder is warmed up long enough to be
+ * compiled. Then both orientations are found on images of every size, largest to smallest, in
+ * turn, so the seam length changes on every call. Allocation is measured with the HotSpot
+ * {@link com.sun.management.ThreadMXBean}, less whatever reading the counter allocates itself.
+ */
+public class SeamFinderContextCheck {
+    private static final int[][] SIZES = {{300, 200}, {200, 300}, {120, 120}, {1, 50}, {50, 1}};
+    private static final int WARM_UP = 2000;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 373;
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Thread allocation counters aren't available on this JVM");
+            System.exit(1);
+        }
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation counters aren't supported on this JVM");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        Random random = new Random(seed);
+        double[][][] images = new double[SIZES.length][][];
+        for (int s = 0; s < SIZES.length; ++s) {
+            images[s] = new double[SIZES[s][0]][SIZES[s][1]];
+            for (double[] column : images[s]) {
+                for (int y = 0; y < column.length; ++y) {
+                    column[y] = random.nextDouble() * 255;
+                }
+            }
+        }
+
+        DynamicProgrammingSeamFinder finder = new DynamicProgrammingSeamFinder();
+        SeamFinderContext context = new SeamFinderContext();
+        long checksum = 0;
+        for (int i = 0; i < WARM_UP; ++i) {
+            checksum += run(finder, images, context);
+        }
+
+        // Reading the counter may allocate, so measure that on its own first.
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; ++i) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            long after = threads.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, after - before);
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; ++i) {
+            checksum += run(finder, images, context);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        if (context.horizontalSeamLength() != images[SIZES.length - 1].length
+                || context.verticalSeamLength() != images[SIZES.length - 1][0].length) {
+            System.out.println("Context reports the wrong seam lengths");
+            System.exit(1);
+        }
+        System.out.println(allocated == 0
+            ? "OK: " + iterations * SIZES.length * 2 + " seams without allocating (checksum " + checksum + ")"
+            : allocated + " bytes allocated over " + iterations * SIZES.length * 2 + " seams");
+        if (allocated != 0) {
+            System.exit(1);
+        }
+    }
+
+    // Finds a seam of each orientation in every image, and sums the seams so they aren't dead code.
+    private static long run(DynamicProgrammingSeamFinder finder, double[][][] images, SeamFinderContext context) {
+        long sum = 0;
+        for (double[][] energies : images) {
+            int[] horizontal = finder.findHorizontalSeamInto(energies, context);
+            for (int i = 0; i < context.horizontalSeamLength(); ++i) {
+                sum += horizontal[i];
+            }
+            int[] vertical = finder.findVerticalSeamInto(energies, context);
+            for (int i = 0; i < context.verticalSeamLength(); ++i) {
+                sum += vertical[i];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,120 @@
+package seamcarving;
+
+/**
+ * Enlarges images by inserting seams.
+ *
+ * The k lowest-energy seams are found in a single pass over one shared working copy of the
+ * energies, each seam is mapped back to original coordinates, and then every seam is duplicated
+ * in one output pass over the image. Pixels inserted next to a seam are the average of the seam
+ * pixel and its neighbor.
+ *
+ * Energies aren't recomputed as seams are removed, since only the energies are known here, so
+ * pixels next to a removed seam keep their original energy.
+ *
+ * Images are indexed by column and then row, the same as energy matrices, and pixels are packed
+ * RGB ints.
+ *
+ * @see DynamicProgrammingSeamFinder
+ */
+public class SeamInserter {
+    private final DynamicProgrammingSeamFinder finder;
+
+    public SeamInserter() {
+        this(new DynamicProgrammingSeamFinder());
+    }
+
+    public SeamInserter(DynamicProgrammingSeamFinder finder) {
+        this.finder = finder;
+    }
+
+    /**
+     * Finds the k lowest-energy vertical seams, in the order they would be removed.
+     *
+     * @return seams[s][y] is the column of the original image that seam s goes through in row y
+     * @throws IllegalArgumentException if k is negative or isn't less than the width of the image
+     */
+    public int[][] findVerticalSeams(double[][] energies, int k) {
+        if (k < 0 || k >= energies.length) {
+            throw new IllegalArgumentException("Can't find " + k + " seams in an image of width " + energies.length);
+        }
+        VerticalSeamWorkspace workspace = new VerticalSeamWorkspace(energies, finder);
+        int[][] seams = new int[k][];
+        for (int s = 0; s < k; ++s) {
+            seams[s] = workspace.removeSeam(workspace.findSeam());
+        }
+        return seams;
+    }
+
+    /**
+     * Finds the k lowest-energy horizontal seams, in the order they would be removed.
+     *
+     * @return seams[s][x] is the row of the original image that seam s goes through in column x
+     * @throws IllegalArgumentException if k is negative or isn't less than the height of the image
+     */
+    public int[][] findHorizontalSeams(double[][] energies, int k) {
+        // A horizontal seam of the image is a vertical seam of the transposed image.
+        return findVerticalSeams(finder.transpose(energies), k);
+    }
+
+    /**
+     * Returns a copy of the image that is k pixels wider.
+     */
+    public int[][] insertVerticalSeams(int[][] pixels, double[][] energies, int k) {
+        int width = pixels.length;
+        int height = pixels[0].length;
+        boolean[][] duplicated = markSeams(findVerticalSeams(energies, k), height, width);
+
+        int[][] result = new int[width + k][height];
+        for (int y = 0; y < height; ++y) {
+            int resultX = 0;
+            for (int x = 0; x < width; ++x) {
+                result[resultX++][y] = pixels[x][y];
+                if (duplicated[y][x]) {
+                    result[resultX++][y] = blend(pixels[x][y], pixels[Math.min(x + 1, width - 1)][y]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the image that is k pixels taller.
+     */
+    public int[][] insertHorizontalSeams(int[][] pixels, double[][] energies, int k) {
+        int width = pixels.length;
+        int height = pixels[0].length;
+        boolean[][] duplicated = markSeams(findHorizontalSeams(energies, k), width, height);
+
+        int[][] result = new int[width][height + k];
+        for (int x = 0; x < width; ++x) {
+            int resultY = 0;
+            for (int y = 0; y < height; ++y) {
+                result[x][resultY++] = pixels[x][y];
+                if (duplicated[x][y]) {
+                    result[x][resultY++] = blend(pixels[x][y], pixels[x][Math.min(y + 1, height - 1)]);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Returns marks[line][i], which is true if any seam goes through cell i of the given line.
+    // Seams never overlap, since each one was removed before the next one was found.
+    private static boolean[][] markSeams(int[][] seams, int lines, int span) {
+        boolean[][] marks = new boolean[lines][span];
+        for (int[] seam : seams) {
+            for (int line = 0; line < lines; ++line) {
+                marks[line][seam[line]] = true;
+            }
+        }
+        return marks;
+    }
+
+    // Averages every channel of two packed RGB colors, keeping the alpha of the first.
+    static int blend(int a, int b) {
+        int red = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF)) / 2;
+        int green = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF)) / 2;
+        int blue = ((a & 0xFF) + (b & 0xFF)) / 2;
+        return (a & 0xFF000000) | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -0,0 +1,76 @@
+package seamcarving;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format for sets of seams, such as precomputed carve plans.
+ *
+ * The format is a magic number, a version and the number of seams, followed by every seam as its
+ * length, its first index and its packed steps (see {@link Seam}). All values are big-endian,
+ * as written by {@link DataOutputStream}.
+ *
+ * @see Seam
+ */
+public final class SeamSerializer {
+    private static final int MAGIC = 0x5345414D; // "SEAM"
+    private static final int VERSION = 1;
+
+    private SeamSerializer() {
+    }
+
+    /**
+     * Writes the seams to out. The stream is flushed but not closed.
+     */
+    public static void write(OutputStream out, List<Seam> seams) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(seams.size());
+        for (Seam seam : seams) {
+            seam.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads seams written by {@link #write(OutputStream, List)}. The stream is not closed, and
+     * nothing past the end of the seams is read, so other data may follow them in the stream.
+     *
+     * @throws IOException if the stream ends early or holds anything write couldn't have written
+     */
+    public static List<Seam> read(InputStream in) throws IOException {
+        return read(in, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Reads seams, failing before anything is allocated if the file holds more than maxCount
+    // seams or a seam longer than maxLength, as a corrupt file might claim, and failing if any
+    // index is outside [0, span).
+    static List<Seam> read(InputStream in, int maxCount, int maxLength, int span) throws IOException {
+        // Not buffered, since a buffer could read past the seams. Seams read their steps in bulk instead.
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a seam file");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported seam file version: " + version);
+        }
+        int count = data.readInt();
+        if (count < 0 || count > maxCount) {
+            throw new IOException("Invalid seam count: " + count);
+        }
+        // Don't trust the count with a large allocation before the seams have actually been read.
+        List<Seam> seams = new ArrayList<>(Math.min(count, 1024));
+        for (int s = 0; s < count; ++s) {
+            seams.add(Seam.readFrom(data, maxLength, span));
+        }
+        return seams;
+    }
+}
@@ -0,0 +1,177 @@
+package seamcarving;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link SeamSerializer} reads back exactly the seams it wrote, and that it rejects
+ * corrupt seams with an IOException. Exits with status 1 if any check fails.
+ *
+ * <pre>
+ * java seamcarving.SeamSerializerCheck [trials] [seed]
+ * </pre>
+ *
+ * The corrupt seams are written by hand: a negative or out-of-range first index, steps that walk
+ * out of range, an invalid step, bits set past the last step, and a truncated stream.
+ */
+public class SeamSerializerCheck {
+    private static final int MAGIC = 0x5345414D;
+    private static final int VERSION = 1;
+    private static final int SPAN = 100;
+    // Lengths around the word and checkpoint boundaries.
+    private static final int[] LENGTHS = {1, 2, 32, 33, 34, 64, 65, 256, 257, 1000};
+
+    public static void main(String[] args) throws IOException {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 373;
+        Random random = new Random(seed);
+
+        int failures = 0;
+        for (int trial = 0; trial < trials; ++trial) {
+            List<Seam> seams = new ArrayList<>();
+            List<int[]> indices = new ArrayList<>();
+            for (int length : LENGTHS) {
+                int[] seam = randomSeam(random, length);
+                indices.add(seam);
+                seams.add(Seam.of(seam));
+            }
+            String problem = roundTrip(seams, indices);
+            if (problem != null) {
+                ++failures;
+                System.out.printf("trial %d: %s%n", trial, problem);
+            }
+
+            for (int length : LENGTHS) {
+                for (Corruption corruption : Corruption.values()) {
+                    if (!corruption.appliesTo(length)) {
+                        continue;
+                    }
+                    byte[] bytes = corruption.write(randomSeam(random, length));
+                    try {
+                        SeamSerializer.read(new ByteArrayInputStream(bytes), 1, length, SPAN);
+                        ++failures;
+                        System.out.printf("trial %d, length %d: %s was accepted%n", trial, length, corruption);
+                    } catch (IOException e) {
+                        // Expected.
+                    }
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "OK: " + trials + " trials" : failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Returns a description of how the seams read back differ, or null if they don't.
+    private static String roundTrip(List<Seam> seams, List<int[]> indices) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SeamSerializer.write(out, seams);
+        out.write(42);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        List<Seam> read = SeamSerializer.read(in, seams.size(), LENGTHS[LENGTHS.length - 1], SPAN);
+        if (!read.equals(seams)) {
+            return "read " + read.size() + " seams that differ from the ones written";
+        }
+        for (int s = 0; s < read.size(); ++s) {
+            int[] expected = indices.get(s);
+            if (!Arrays.equals(read.get(s).toArray(), expected)) {
+                return "seam " + s + " decodes differently";
+            }
+            for (int i = 0; i < expected.length; ++i) {
+                if (read.get(s).get(i) != expected[i]) {
+                    return "seam " + s + " has " + read.get(s).get(i) + " at " + i + ", expected " + expected[i];
+                }
+            }
+        }
+        if (in.read() != 42) {
+            return "read past the end of the seams";
+        }
+        return null;
+    }
+
+    private static int[] randomSeam(Random random, int length) {
+        int[] seam = new int[length];
+        seam[0] = random.nextInt(SPAN);
+        for (int i = 1; i < length; ++i) {
+            seam[i] = Math.max(0, Math.min(SPAN - 1, seam[i - 1] + random.nextInt(3) - 1));
+        }
+        return seam;
+    }
+
+    private enum Corruption {
+        NEGATIVE_START, START_OUT_OF_RANGE, WALKS_BELOW_ZERO, WALKS_OUT_OF_RANGE, INVALID_STEP,
+        PADDING_BITS, TRUNCATED;
+
+        boolean appliesTo(int length) {
+            switch (this) {
+                case WALKS_BELOW_ZERO:
+                case WALKS_OUT_OF_RANGE:
+                case INVALID_STEP:
+                    return length > 1;
+                case PADDING_BITS:
+                    return (length - 1) % 32 != 0;
+                case TRUNCATED:
+                    return length > 1;
+                default:
+                    return true;
+            }
+        }
+
+        // Writes a file holding the seam with this corruption applied.
+        byte[] write(int[] seam) throws IOException {
+            int length = seam.length;
+            int first = seam[0];
+            long[] words = new long[(length - 1 + 31) / 32];
+            for (int i = 1; i < length; ++i) {
+                words[(i - 1) / 32] |= (long) (seam[i] - seam[i - 1] + 1) << (2 * ((i - 1) % 32));
+            }
+            switch (this) {
+                case NEGATIVE_START:
+                    first = -1;
+                    break;
+                case START_OUT_OF_RANGE:
+                    first = SPAN;
+                    break;
+                case WALKS_BELOW_ZERO:
+                case WALKS_OUT_OF_RANGE:
+                    // Start at the edge and step over it every time.
+                    first = this == WALKS_BELOW_ZERO ? 0 : SPAN - 1;
+                    long step = this == WALKS_BELOW_ZERO ? 0 : 2;
+                    Arrays.fill(words, 0);
+                    for (int i = 0; i < length - 1; ++i) {
+                        words[i / 32] |= step << (2 * (i % 32));
+                    }
+                    break;
+                case INVALID_STEP:
+                    words[0] |= 3L << (2 * ((length - 2) % 32));
+                    break;
+                case PADDING_BITS:
+                    words[words.length - 1] |= 1L << 62;
+                    break;
+                default:
+                    break;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(1);
+            out.writeInt(length);
+            out.writeInt(first);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            out.flush();
+            byte[] result = bytes.toByteArray();
+            return this == TRUNCATED ? Arrays.copyOf(result, result.length - 1) : result;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dynamic programming implementation of the {@link SeamFinder} interface that only needs
+ * a constant number of energy lines in memory.
+ *
+ * Energies are read one line at a time from an {@link EnergySource}. Only the previous and the
+ * current line of minimum weights are kept on the heap. Instead of keeping every weight around
+ * for backtracking, each cell records which neighbor its minimum came from in 2 bits, and those
+ * backpointers are spilled to a memory-mapped scratch file. This means the heap usage only
+ * depends on the length of one line, no matter how large the image is.
+ *
+ * A finder keeps one scratch mapping and reuses it for every search that fits, growing it when a
+ * search doesn't fit. Searches on the same finder therefore run one at a time; use one finder per
+ * thread to search in parallel. The scratch file is deleted as soon as it is mapped, which on
+ * most platforms leaves nothing on disk while the mapping stays usable. Platforms that refuse to
+ * delete mapped files keep a single scratch file per finder, which grows in place and is deleted
+ * when the JVM exits. Mappings can't be released explicitly, so memory from a mapping that was
+ * outgrown is returned once the mapping is garbage collected.
+ *
+ * The seams found are the same as the ones found by {@link DynamicProgrammingSeamFinder}.
+ *
+ * @see SeamFinder
+ * @see EnergySource
+ */
+public class StreamingSeamFinder implements SeamFinder {
+    private final Path scratchDirectory;
+
+    // The scratch mapping shared by every search, with room for spilledLines lines of spilledStride
+    // bytes each. Guarded by this.
+    private MappedRegions spilled;
+    private long spilledLines;
+    private int spilledStride;
+    // The file behind the mapping, if the platform wouldn't let it be deleted while mapped.
+    private Path undeletedScratch;
+
+    /**
+     * Creates a finder that puts its scratch files in the default temporary-file directory.
+     */
+    public StreamingSeamFinder() {
+        this(null);
+    }
+
+    /**
+     * Creates a finder that puts its scratch files in the given directory.
+     */
+    public StreamingSeamFinder(Path scratchDirectory) {
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    @Override
+    public List<Integer> findHorizontalSeam(double[][] energies) {
+        return findHorizontalSeam(new ArrayEnergySource(energies));
+    }
+
+    @Override
+    public List<Integer> findVerticalSeam(double[][] energies) {
+        return findVerticalSeam(new ArrayEnergySource(energies));
+    }
+
+    /**
+     * Finds a horizontal seam, reading the source one column at a time.
+     */
+    public List<Integer> findHorizontalSeam(EnergySource source) {
+        return findSeam(source.width(), source.height(), source::readColumn);
+    }
+
+    /**
+     * Finds a vertical seam, reading the source one row at a time.
+     *
+     * Sources are usually stored one column after the other, so reading a single row would touch a
+     * different page for every pixel. Instead, strips of rows are read one column segment at a time
+     * and transposed into a buffer of bounded size, from which the rows are then served.
+     */
+    public List<Integer> findVerticalSeam(EnergySource source) {
+        return findSeam(source.height(), source.width(), new RowStrips(source));
+    }
+
+    private interface LineReader {
+        void read(int index, double[] dest);
+    }
+
+    // Reads the rows of a source in order, a strip of rows at a time.
+    private static class RowStrips implements LineReader {
+        // The most energies buffered at once, which keeps the buffer at 8MB.
+        private static final int STRIP_ENERGIES = 1 << 20;
+
+        private final EnergySource source;
+        private final int width;
+        private final int height;
+        private final int stripRows;
+        private final double[] column;
+        // Row-major copy of the rows from stripStart to stripStart + stripRows - 1.
+        private final double[] strip;
+        private int stripStart;
+
+        RowStrips(EnergySource source) {
+            this.source = source;
+            this.width = source.width();
+            this.height = source.height();
+            this.stripRows = Math.max(1, Math.min(height, STRIP_ENERGIES / width));
+            this.column = new double[stripRows];
+            this.strip = new double[stripRows * width];
+            this.stripStart = -stripRows;
+        }
+
+        @Override
+        public void read(int y, double[] dest) {
+            if (y < stripStart || y >= stripStart + stripRows) {
+                load(y);
+            }
+            System.arraycopy(strip, (y - stripStart) * width, dest, 0, width);
+        }
+
+        private void load(int y) {
+            int rows = Math.min(stripRows, height - y);
+            for (int x = 0; x < width; ++x) {
+                source.readColumn(x, y, rows, column, 0);
+                for (int r = 0; r < rows; ++r) {
+                    strip[r * width + x] = column[r];
+                }
+            }
+            stripStart = y;
+        }
+    }
+
+    // Finds a seam that goes through one cell of each of the `lines` lines, each of which has `span` cells.
+    private synchronized List<Integer> findSeam(int lines, int span, LineReader reader) {
+        double[] energies = new double[span];
+        double[] prevWeights = new double[span];
+        double[] weights = new double[span];
+        reader.read(0, prevWeights);
+
+        // Each backpointer is 0, 1 or 2 for the neighbor above, level with or below the cell.
+        // Four of them fit in one byte.
+        int lineBytes = (span + 3) / 4;
+        byte[] backpointers = new byte[lineBytes];
+
+        try {
+            // Lines are spilled at the stride of the mapping, which may be wider than lineBytes.
+            int stride = lines > 1 ? reserveScratch(lines - 1, lineBytes) : lineBytes;
+
+            for (int j = 1; j < lines; ++j) {
+                reader.read(j, energies);
+                Arrays.fill(backpointers, (byte) 0);
+
+                for (int i = 0; i < span; ++i) {
+                    int prevIdx = minNeighbor(prevWeights, i, span);
+                    weights[i] = prevWeights[prevIdx] + energies[i];
+                    backpointers[i >> 2] |= (prevIdx - i + 1) << ((i & 3) * 2);
+                }
+                spilled.put((long) (j - 1) * stride, backpointers);
+
+                double[] temp = prevWeights;
+                prevWeights = weights;
+                weights = temp;
+            }
+
+            // Find the endpoint of the seam in the last line.
+            int minIdx = 0;
+            for (int i = 1; i < span; ++i) {
+                if (prevWeights[i] < prevWeights[minIdx]) {
+                    minIdx = i;
+                }
+            }
+
+            // Backtrack through the spilled backpointers, last line first.
+            int[] seam = new int[lines];
+            seam[lines - 1] = minIdx;
+            for (int j = lines - 1; j > 0; --j) {
+                spilled.get((long) (j - 1) * stride, backpointers);
+                int direction = (backpointers[minIdx >> 2] >> ((minIdx & 3) * 2)) & 3;
+                minIdx += direction - 1;
+                seam[j - 1] = minIdx;
+            }
+
+            List<Integer> result = new ArrayList<>(lines);
+            for (int idx : seam) {
+                result.add(idx);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Makes sure the scratch mapping has room for the given number of lines of the given size,
+    // and returns the stride of its lines. A new mapping is at least twice as large as the old
+    // one, so a finder that carves a shrinking image seam by seam only maps a few times.
+    private int reserveScratch(long lines, int lineBytes) throws IOException {
+        if (spilled != null && spilledLines >= lines && spilledStride >= lineBytes) {
+            return spilledStride;
+        }
+        long newLines = Math.max(lines, spilled == null ? 0 : 2 * spilledLines);
+        int newStride = Math.max(lineBytes, spilledStride);
+        Path scratch = undeletedScratch;
+        if (scratch == null) {
+            scratch = scratchDirectory == null
+                ? Files.createTempFile("seams", ".bin")
+                : Files.createTempFile(scratchDirectory, "seams", ".bin");
+        }
+        try (FileChannel channel = FileChannel.open(scratch, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            spilled = new MappedRegions(channel, FileChannel.MapMode.READ_WRITE, 0, newLines, newStride);
+        } catch (IOException | RuntimeException e) {
+            if (undeletedScratch == null) {
+                Files.deleteIfExists(scratch);
+            }
+            throw e;
+        }
+        spilledLines = newLines;
+        spilledStride = newStride;
+        if (undeletedScratch == null) {
+            try {
+                // The mapping stays valid after the file is deleted.
+                Files.delete(scratch);
+            } catch (IOException e) {
+                // Some platforms refuse to delete files that are still mapped. Keep growing this
+                // file instead of creating more, and delete it when the JVM exits.
+                undeletedScratch = scratch;
+                scratch.toFile().deleteOnExit();
+            }
+        }
+        return newStride;
+    }
+
+    // Picks the neighbor of cell i with the minimum weight in the previous line.
+    // Ties are broken the same way DynamicProgrammingSeamFinder breaks them while backtracking.
+    private static int minNeighbor(double[] prevWeights, int i, int span) {
+        if (span == 1) {
+            return 0;
+        } else if (i == 0) {
+            return prevWeights[0] < prevWeights[1] ? 0 : 1;
+        } else if (i == span - 1) {
+            return prevWeights[span - 1] < prevWeights[span - 2] ? span - 1 : span - 2;
+        }
+        int prevIdx = prevWeights[i + 1] < prevWeights[i] ? i + 1 : i;
+        return prevWeights[prevIdx] < prevWeights[i - 1] ? prevIdx : i - 1;
+    }
+}
@@ -0,0 +1,100 @@
+package seamcarving;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A working copy of an energy matrix that vertical seams can be removed from in place.
+ *
+ * The energies are stored one row per array, so removing a seam is a single array copy per row,
+ * and the matrix never has to be reallocated or transposed as it shrinks. Every cell also
+ * remembers which column of the original image it came from, so removed seams can be mapped
+ * back to original coordinates.
+ */
+final class VerticalSeamWorkspace {
+    private final DynamicProgrammingSeamFinder finder;
+    // rows[y][x] is the energy at column x of row y. Only the first `width` entries are in use.
+    private final double[][] rows;
+    // originalX[y][x] is the column of the original image that the cell at (x, y) came from.
+    private final int[][] originalX;
+    private final int[] lo;
+    private final int[] hi;
+    private int width;
+
+    VerticalSeamWorkspace(double[][] energies, DynamicProgrammingSeamFinder finder) {
+        this.finder = finder;
+        this.width = energies.length;
+        int height = energies[0].length;
+
+        this.rows = new double[height][width];
+        this.originalX = new int[height][width];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                rows[y][x] = energies[x][y];
+                originalX[y][x] = x;
+            }
+        }
+        this.lo = new int[height];
+        this.hi = new int[height];
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return rows.length;
+    }
+
+    /**
+     * Finds the lowest-energy vertical seam of the remaining image.
+     *
+     * @return the column of the seam in every row, in current (not original) coordinates
+     */
+    int[] findSeam() {
+        // The rows are used as the "columns" of a horizontal seam search,
+        // and the band keeps the search inside the part of each row that is still in use.
+        Arrays.fill(hi, width - 1);
+        return toArray(finder.findHorizontalSeam(rows, lo, hi));
+    }
+
+    /**
+     * Finds the lowest-energy vertical seam that stays between lo[y] and hi[y] (inclusive) in
+     * every row y, after adding the mask's bias to every energy. Since the search runs over rows,
+     * the mask is called as bias(y, x). The mask may be null.
+     *
+     * @return the column of the seam in every row, in current (not original) coordinates
+     */
+    int[] findSeam(int[] bandLo, int[] bandHi, EnergyMask mask) {
+        return toArray(finder.findHorizontalSeam(rows, bandLo, bandHi, mask));
+    }
+
+    /**
+     * Removes the given seam from the remaining image.
+     *
+     * @param seam the column of the seam in every row, in current coordinates
+     * @return the column of the seam in every row, in original coordinates
+     */
+    int[] removeSeam(int[] seam) {
+        if (width <= 1) {
+            throw new IllegalStateException("Can't remove a seam from an image that is 1 pixel wide");
+        }
+        int[] removed = new int[rows.length];
+        for (int y = 0; y < rows.length; ++y) {
+            int x = seam[y];
+            removed[y] = originalX[y][x];
+            System.arraycopy(rows[y], x + 1, rows[y], x, width - x - 1);
+            System.arraycopy(originalX[y], x + 1, originalX[y], x, width - x - 1);
+        }
+        --width;
+        return removed;
+    }
+
+    private static int[] toArray(List<Integer> seam) {
+        int[] result = new int[seam.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = seam.get(i);
+        }
+        return result;
+    }
+}
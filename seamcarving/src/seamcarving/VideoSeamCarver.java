@@ -0,0 +1,248 @@
+package seamcarving;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Narrows every frame of a video by the same number of vertical seams.
+ *
+ * Consecutive frames are usually nearly identical, so after the first frame, every seam is only
+ * searched for in a narrow band around the matching seam of the previous frame, and moving away
+ * from that seam is penalized. This is much cheaper than a full search, and keeps seams from
+ * jumping around between frames.
+ *
+ * Frames go through a pipeline of decode, energy, carve and encode stages that run at the same
+ * time. Energies are computed for several frames in parallel, while carving happens one frame at
+ * a time in order, since every frame depends on the seams of the one before it.
+ *
+ * A carver handles one video at a time. Frames are indexed by column and then row.
+ *
+ * @see VerticalSeamWorkspace
+ */
+public class VideoSeamCarver {
+    private static final int QUEUE_CAPACITY = 8;
+    private static final long POLL_MILLIS = 100;
+
+    /** Produces decoded frames. */
+    public interface FrameSource {
+        /** Returns the next frame, or null once there are no frames left. */
+        int[][] next() throws IOException;
+    }
+
+    /** Consumes carved frames. */
+    public interface FrameSink {
+        void accept(int[][] frame) throws IOException;
+    }
+
+    private static final Future<Frame> END_OF_FRAMES = CompletableFuture.completedFuture(null);
+    private static final int[][] END_OF_CARVED = new int[0][];
+
+    private final DynamicProgrammingSeamFinder finder;
+    private final int seamsToRemove;
+    private final int bandRadius;
+    private final double temporalPenalty;
+    private final int energyThreads;
+
+    // Seams of the previous frame, in the workspace coordinates of the step that removed them.
+    private int[][] previousSeams;
+    private int previousWidth;
+    private int previousHeight;
+
+    /**
+     * @param seamsToRemove how many pixels narrower every frame becomes
+     * @param bandRadius how far a seam may move away from the previous frame's seam in each row. Must be > 0.
+     * @param temporalPenalty energy added per pixel a seam moves away from the previous frame's seam
+     * @param energyThreads how many frames may have their energies computed at once. Must be > 0.
+     */
+    public VideoSeamCarver(int seamsToRemove, int bandRadius, double temporalPenalty, int energyThreads) {
+        if (seamsToRemove < 0 || bandRadius <= 0 || energyThreads <= 0) {
+            throw new IllegalArgumentException("Invalid video carver settings");
+        }
+        this.finder = new DynamicProgrammingSeamFinder();
+        this.seamsToRemove = seamsToRemove;
+        this.bandRadius = bandRadius;
+        this.temporalPenalty = temporalPenalty;
+        this.energyThreads = energyThreads;
+    }
+
+    private static class Frame {
+        final int[][] pixels;
+        final double[][] energies;
+
+        Frame(int[][] pixels, double[][] energies) {
+            this.pixels = pixels;
+            this.energies = energies;
+        }
+    }
+
+    /**
+     * Reads every frame from source, carves it, and writes it to sink, in order.
+     *
+     * @param energyFunction computes the energies of a frame. Called from several threads at once.
+     */
+    public void carve(FrameSource source, Function<int[][], double[][]> energyFunction, FrameSink sink)
+        throws IOException, InterruptedException {
+        previousSeams = null;
+        ExecutorService energyPool = Executors.newFixedThreadPool(energyThreads);
+        ExecutorService ioPool = Executors.newFixedThreadPool(2);
+        // Holding futures in decode order lets energies finish out of order while frames stay in order.
+        BlockingQueue<Future<Frame>> decoded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<int[][]> carved = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        try {
+            Future<Void> decoder = ioPool.submit(() -> {
+                int[][] pixels;
+                while ((pixels = source.next()) != null) {
+                    int[][] frame = pixels;
+                    decoded.put(energyPool.submit(() -> new Frame(frame, energyFunction.apply(frame))));
+                }
+                decoded.put(END_OF_FRAMES);
+                return null;
+            });
+            Future<Void> encoder = ioPool.submit(() -> {
+                int[][] frame;
+                while ((frame = carved.take()) != END_OF_CARVED) {
+                    sink.accept(frame);
+                }
+                return null;
+            });
+
+            while (true) {
+                Future<Frame> next = take(decoded, decoder);
+                Frame frame = await(next);
+                if (frame == null) {
+                    break;
+                }
+                put(carved, carveFrame(frame.pixels, frame.energies), encoder);
+            }
+            put(carved, END_OF_CARVED, encoder);
+            await(decoder);
+            await(encoder);
+        } finally {
+            energyPool.shutdownNow();
+            ioPool.shutdownNow();
+        }
+    }
+
+    // Removes the seams from one frame, warm-starting from the previous frame's seams if possible.
+    private int[][] carveFrame(int[][] pixels, double[][] energies) {
+        int width = pixels.length;
+        int height = pixels[0].length;
+        if (seamsToRemove >= width) {
+            throw new IllegalArgumentException("Can't remove " + seamsToRemove + " seams from a frame of width " + width);
+        }
+        if (seamsToRemove == 0) {
+            return pixels;
+        }
+        if (previousSeams != null && (previousWidth != width || previousHeight != height)) {
+            // The frame size changed, so the previous seams don't apply.
+            previousSeams = null;
+        }
+
+        VerticalSeamWorkspace workspace = new VerticalSeamWorkspace(energies, finder);
+        int[][] seams = new int[seamsToRemove][];
+        boolean[][] removed = new boolean[height][width];
+        int[] lo = new int[height];
+        int[] hi = new int[height];
+        for (int s = 0; s < seamsToRemove; ++s) {
+            if (previousSeams == null) {
+                seams[s] = workspace.findSeam();
+            } else {
+                int[] previous = previousSeams[s];
+                for (int y = 0; y < height; ++y) {
+                    lo[y] = Math.max(0, previous[y] - bandRadius);
+                    hi[y] = Math.min(workspace.width() - 1, previous[y] + bandRadius);
+                }
+                seams[s] = workspace.findSeam(lo, hi, new TemporalPenalty(previous, temporalPenalty));
+            }
+            int[] original = workspace.removeSeam(seams[s]);
+            for (int y = 0; y < height; ++y) {
+                removed[y][original[y]] = true;
+            }
+        }
+        previousSeams = seams;
+        previousWidth = width;
+        previousHeight = height;
+
+        int[][] result = new int[width - seamsToRemove][height];
+        for (int y = 0; y < height; ++y) {
+            int resultX = 0;
+            for (int x = 0; x < width; ++x) {
+                if (!removed[y][x]) {
+                    result[resultX++][y] = pixels[x][y];
+                }
+            }
+        }
+        return result;
+    }
+
+    // Penalizes moving away from the previous frame's seam. The workspace searches over rows, so
+    // the mask is called with the row first.
+    private static class TemporalPenalty implements EnergyMask {
+        private final int[] previous;
+        private final double penalty;
+
+        TemporalPenalty(int[] previous, double penalty) {
+            this.previous = previous;
+            this.penalty = penalty;
+        }
+
+        @Override
+        public double bias(int y, int x) {
+            return penalty * Math.abs(x - previous[y]);
+        }
+
+        @Override
+        public double minBias() {
+            return Math.min(0, penalty);
+        }
+    }
+
+    // Waits for the next item, failing if the producer died without sending one.
+    private static <T> T take(BlockingQueue<T> queue, Future<?> producer) throws IOException, InterruptedException {
+        while (true) {
+            T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+            if (producer.isDone() && queue.isEmpty()) {
+                await(producer);
+                throw new IllegalStateException("Producer finished without ending the stream");
+            }
+        }
+    }
+
+    // Waits for space in the queue, failing if the consumer died.
+    private static <T> void put(BlockingQueue<T> queue, T item, Future<?> consumer) throws IOException, InterruptedException {
+        while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (consumer.isDone()) {
+                await(consumer);
+                throw new IllegalStateException("Consumer finished before the end of the stream");
+            }
+        }
+    }
+
+    // Returns the result of the future, rethrowing whatever the task threw.
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}